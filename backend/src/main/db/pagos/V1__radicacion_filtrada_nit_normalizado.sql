@@ -0,0 +1,19 @@
+-- NIT normalizado en radicacion_filtrada, como en db/migration/V1 para registro_prestadores.
+-- PagosService y PagosResumenMensualService filtran por nit_normalizado = ? (el NIT ya llega
+-- normalizado desde NitNormalizer) y el índice (nit_normalizado, fecha_radicacion) permite un seek
+-- por NIT y rango de fechas semiabierto.
+-- Materializar la columna y crear el índice recorre toda la tabla y la bloquea: se ejecuta en una
+-- ventana de mantenimiento con el perfil migraciones-pagos (ver pom.xml), no al iniciar la API.
+
+IF COL_LENGTH('dbo.radicacion_filtrada', 'nit_normalizado') IS NULL
+    ALTER TABLE dbo.radicacion_filtrada
+        ADD nit_normalizado AS CAST(LTRIM(RTRIM(nit)) AS VARCHAR(20)) PERSISTED;
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_radicacion_filtrada_nit_fecha'
+                 AND object_id = OBJECT_ID('dbo.radicacion_filtrada'))
+    CREATE NONCLUSTERED INDEX IX_radicacion_filtrada_nit_fecha
+        ON dbo.radicacion_filtrada (nit_normalizado, fecha_radicacion)
+        INCLUDE (prefijo_factura, nom_prestador, valor_factura, valor_pagado, feccha_pago);
+GO
@@ -0,0 +1,29 @@
+-- Rollup mensual de radicacion_filtrada, mantenido por PagosResumenMensualService de forma
+-- incremental según la marca de agua. La API solo lee y escribe estas tablas; crearlas es parte
+-- de las migraciones de fomagf (perfil migraciones-pagos).
+
+IF OBJECT_ID('dbo.pagos_resumen_mensual') IS NULL
+    CREATE TABLE dbo.pagos_resumen_mensual (
+        nit             VARCHAR(20)    NOT NULL,
+        anio            INT            NOT NULL,
+        mes             INT            NOT NULL,
+        prefijo         VARCHAR(100)   NOT NULL,
+        nom_prestador   NVARCHAR(300)  NULL,
+        total_facturado DECIMAL(19, 2) NOT NULL,
+        total_pagado    DECIMAL(19, 2) NOT NULL,
+        n_facturas      INT            NOT NULL,
+        CONSTRAINT PK_pagos_resumen_mensual PRIMARY KEY (nit, anio, mes, prefijo)
+    );
+GO
+
+IF OBJECT_ID('dbo.pagos_resumen_control') IS NULL
+BEGIN
+    CREATE TABLE dbo.pagos_resumen_control (
+        id                       INT       NOT NULL PRIMARY KEY,
+        ultima_fecha_radicacion  DATETIME2 NULL,
+        ultima_fecha_pago        DATETIME2 NULL,
+        actualizado_en           DATETIME2 NULL
+    );
+    INSERT INTO dbo.pagos_resumen_control (id) VALUES (1);
+END;
+GO
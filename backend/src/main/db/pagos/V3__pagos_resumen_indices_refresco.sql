@@ -0,0 +1,29 @@
+-- Índices para el refresco de pagos_resumen_mensual (PagosResumenMensualService):
+--  * las ramas de la marca de agua filtran por fecha_radicacion >= ? y por feccha_pago >= ?, sin
+--    NIT, y hacen seek sobre estos índices en lugar de recorrer radicacion_filtrada; también
+--    resuelven MAX(fecha_radicacion) y MAX(feccha_pago) sin recorrer la tabla.
+--  * la reconstrucción nocturna ubica los meses del rollup por (anio, mes).
+-- Igual que V1, crear los índices sobre radicacion_filtrada recorre la tabla: ventana de mantenimiento.
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_radicacion_filtrada_fecha_radicacion'
+                 AND object_id = OBJECT_ID('dbo.radicacion_filtrada'))
+    CREATE NONCLUSTERED INDEX IX_radicacion_filtrada_fecha_radicacion
+        ON dbo.radicacion_filtrada (fecha_radicacion)
+        INCLUDE (nit_normalizado);
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_radicacion_filtrada_feccha_pago'
+                 AND object_id = OBJECT_ID('dbo.radicacion_filtrada'))
+    CREATE NONCLUSTERED INDEX IX_radicacion_filtrada_feccha_pago
+        ON dbo.radicacion_filtrada (feccha_pago)
+        INCLUDE (nit_normalizado, fecha_radicacion);
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_pagos_resumen_mensual_periodo'
+                 AND object_id = OBJECT_ID('dbo.pagos_resumen_mensual'))
+    CREATE NONCLUSTERED INDEX IX_pagos_resumen_mensual_periodo
+        ON dbo.pagos_resumen_mensual (anio, mes);
+GO
@@ -0,0 +1,16 @@
+package com.fomag.convocatoria.api;
+
+/**
+ * Normaliza el NIT recibido en la API una sola vez, para que los servicios puedan
+ * comparar directamente contra la columna persistida {@code nit_normalizado}
+ * (equivalente a {@code LTRIM(RTRIM(nit))}) y aprovechar su índice.
+ */
+public final class NitNormalizer {
+
+    private NitNormalizer() {
+    }
+
+    public static String normalizar(String nit) {
+        return nit == null ? null : nit.trim();
+    }
+}
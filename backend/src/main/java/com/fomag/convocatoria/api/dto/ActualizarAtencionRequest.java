@@ -9,6 +9,8 @@ public class ActualizarAtencionRequest {
     private String nit;
     @NotBlank
     private String codHabilitacion;
+    /** Versión leída en GET /sede; si se envía y la fila cambió, el guardado responde 409. */
+    private Long version;
     private String direccion;
     private String departamento;
     private String municipio;
@@ -10,6 +10,7 @@ import java.util.List;
 public class ActualizarSedeSstRequest {
     @NotBlank
     private String nit;
+    private Integer sedeId; // id de dbo.sede_sst; si no llega, la sede se ubica por dirección
     @NotBlank
     private String direccion; // dirección actual para ubicar registros
 
@@ -45,4 +45,5 @@ public class AtencionSedeDto {
     private boolean servicioExclusivo;
     private boolean servicioAgenda;
     private boolean servicioFranjas;
+    private Long version;
 }
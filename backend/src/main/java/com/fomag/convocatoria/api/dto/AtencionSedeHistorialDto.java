@@ -0,0 +1,20 @@
+package com.fomag.convocatoria.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtencionSedeHistorialDto {
+    private Long historialId;
+    private Long atencionId;
+    private LocalDateTime fechaRegistro;
+    private LocalDateTime archivadoEn;
+    private AtencionSedeDto sede;
+}
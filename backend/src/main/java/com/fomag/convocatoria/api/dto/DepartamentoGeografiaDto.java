@@ -0,0 +1,12 @@
+package com.fomag.convocatoria.api.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class DepartamentoGeografiaDto {
+    String id;
+    String nombre;
+    List<MunicipioDto> municipios;
+}
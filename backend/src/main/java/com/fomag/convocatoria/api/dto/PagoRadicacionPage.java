@@ -20,9 +20,11 @@ public class PagoRadicacionPage {
     private int page;
     private int size;
     private boolean hasNext;
+    private String nextCursor;
     private Long totalRows;
     private java.math.BigDecimal totalFacturado;
     private java.math.BigDecimal totalPagado;
     private java.math.BigDecimal totalPendiente;
+    private boolean totalesDesdeCache;
     private List<PagoRadicacionItem> items;
 }
@@ -6,12 +6,13 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Pattern;
 import lombok.Value;
+import lombok.With;
 
 import java.util.List;
 
 @Value
 public class RegistroServiciosRequest {
-    @NotBlank String nit;
+    @With @NotBlank String nit;
     String nombre;
     @NotBlank String clasePrestador;
 
@@ -0,0 +1,105 @@
+package com.fomag.convocatoria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Control de admisión por datasource. Con hilos virtuales ({@code spring.threads.virtual.enabled=true},
+ * requiere ejecutar sobre Java 21) Tomcat deja de limitar la concurrencia, así que el límite pasa a
+ * ser el pool JDBC: cada solicitud toma un permiso del datasource que va a usar antes de entrar al
+ * controlador y, si no lo obtiene en {@code concurrencia.admision.timeout-ms}, se responde 503 en
+ * lugar de acumular miles de hilos esperando una conexión de Hikari.
+ * <p>
+ * Se activa junto con los hilos virtuales, o explícitamente con {@code concurrencia.admision.enabled}.
+ */
+@Configuration
+@ConditionalOnExpression("${concurrencia.admision.enabled:${spring.threads.virtual.enabled:false}}")
+public class AdmisionBaseDatosConfig implements WebMvcConfigurer {
+
+    private final AdmisionInterceptor convocatoria;
+    private final AdmisionInterceptor pagos;
+
+    public AdmisionBaseDatosConfig(@Qualifier("dataSource") HikariDataSource dataSource,
+                                   @Qualifier("pagosDataSource") HikariDataSource pagosDataSource,
+                                   @Value("${concurrencia.admision.permisos-por-conexion:2}") int permisosPorConexion,
+                                   @Value("${concurrencia.admision.timeout-ms:1000}") long timeoutMs,
+                                   MeterRegistry meterRegistry) {
+        this.convocatoria = new AdmisionInterceptor("convocatoria",
+                dataSource.getMaximumPoolSize() * permisosPorConexion, timeoutMs, meterRegistry);
+        this.pagos = new AdmisionInterceptor("pagos",
+                pagosDataSource.getMaximumPoolSize() * permisosPorConexion, timeoutMs, meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(pagos).addPathPatterns("/api/pagos/**");
+        // Catálogos se sirven desde memoria y Power BI no usa la base de datos.
+        registry.addInterceptor(convocatoria).addPathPatterns("/api/**")
+                .excludePathPatterns("/api/pagos/**", "/api/catalogos/**", "/api/pbi/**");
+    }
+
+    static final class AdmisionInterceptor implements AsyncHandlerInterceptor {
+
+        private final String atributo;
+        private final Semaphore permisos;
+        private final int total;
+        private final long timeoutMs;
+        private final Counter rechazos;
+
+        AdmisionInterceptor(String datasource, int total, long timeoutMs, MeterRegistry meterRegistry) {
+            this.atributo = AdmisionInterceptor.class.getName() + "." + datasource;
+            this.permisos = new Semaphore(total, true);
+            this.total = total;
+            this.timeoutMs = timeoutMs;
+            this.rechazos = Counter.builder("db.admision.rechazos")
+                    .description("Solicitudes rechazadas por falta de capacidad en el pool JDBC")
+                    .tag("datasource", datasource)
+                    .register(meterRegistry);
+            Gauge.builder("db.admision.en_uso", this, a -> a.total - a.permisos.availablePermits())
+                    .description("Solicitudes admitidas en curso sobre el datasource")
+                    .tag("datasource", datasource)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+                throws InterruptedException {
+            // En el re-despacho de una respuesta asíncrona (p. ej. exportación CSV) el permiso ya está tomado.
+            if (request.getDispatcherType() == DispatcherType.ASYNC || request.getAttribute(atributo) != null) {
+                return true;
+            }
+            if (!permisos.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                rechazos.increment();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "El servicio está atendiendo muchas solicitudes, intente de nuevo en unos segundos");
+            }
+            request.setAttribute(atributo, Boolean.TRUE);
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+            if (request.getAttribute(atributo) != null) {
+                request.removeAttribute(atributo);
+                permisos.release();
+            }
+        }
+    }
+}
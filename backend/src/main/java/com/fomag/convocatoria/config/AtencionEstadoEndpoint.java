@@ -0,0 +1,27 @@
+package com.fomag.convocatoria.config;
+
+import com.fomag.convocatoria.service.AtencionEstadoService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code POST /actuator/atencionestado}: recalcula el estado de diligenciamiento de todas las sedes.
+ */
+@Component
+@Endpoint(id = "atencionestado")
+public class AtencionEstadoEndpoint {
+
+    private final AtencionEstadoService atencionEstadoService;
+
+    public AtencionEstadoEndpoint(AtencionEstadoService atencionEstadoService) {
+        this.atencionEstadoService = atencionEstadoService;
+    }
+
+    @WriteOperation
+    public Map<String, Object> backfill() {
+        return Map.of("nitsProcesados", atencionEstadoService.backfill());
+    }
+}
@@ -0,0 +1,33 @@
+package com.fomag.convocatoria.config;
+
+import com.fomag.convocatoria.service.CatalogosService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/catalogos}: versión del catálogo geográfico en memoria y recarga manual.
+ */
+@Component
+@Endpoint(id = "catalogos")
+public class CatalogosEndpoint {
+
+    private final CatalogosService catalogosService;
+
+    public CatalogosEndpoint(CatalogosService catalogosService) {
+        this.catalogosService = catalogosService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> estado() {
+        return Map.of("version", catalogosService.version());
+    }
+
+    @WriteOperation
+    public Map<String, Object> recargar() {
+        return Map.of("version", catalogosService.recargar());
+    }
+}
@@ -2,6 +2,7 @@ package com.fomag.convocatoria.config;
 
 import javax.sql.DataSource;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -11,6 +12,14 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.transaction.PlatformTransactionManager;
 
+/**
+ * Datasource de pagos (fomagf). Las consultas de la API son agregaciones de solo lectura, así que
+ * su pool es independiente del principal, con intención de solo lectura. El mantenimiento del rollup
+ * mensual escribe por un pool pequeño aparte ({@code pagosMantenimiento*}).
+ * <p>
+ * Los valores por defecto se sobrescriben con {@code spring.pagos.datasource.hikari.*} y
+ * {@code spring.pagos.mantenimiento.hikari.*}.
+ */
 @Configuration
 public class PagosDataSourceConfig {
 
@@ -21,8 +30,18 @@ public class PagosDataSourceConfig {
     }
 
     @Bean(name = "pagosDataSource")
-    public DataSource pagosDataSource(@Qualifier("pagosDataSourceProperties") DataSourceProperties properties) {
-        return properties.initializeDataSourceBuilder().build();
+    @ConfigurationProperties("spring.pagos.datasource.hikari")
+    public HikariDataSource pagosDataSource(@Qualifier("pagosDataSourceProperties") DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("pagos");
+        dataSource.setMaximumPoolSize(8);
+        dataSource.setMinimumIdle(2);
+        dataSource.setConnectionTimeout(3_000);
+        dataSource.setReadOnly(true);
+        SqlServerDriverTuning.aplicar(dataSource);
+        SqlServerDriverTuning.parametrosComoVarchar(dataSource);
+        dataSource.addDataSourceProperty("applicationIntent", "ReadOnly");
+        return dataSource;
     }
 
     @Bean(name = "pagosJdbcTemplate")
@@ -34,4 +53,26 @@ public class PagosDataSourceConfig {
     public PlatformTransactionManager pagosTransactionManager(@Qualifier("pagosDataSource") DataSource dataSource) {
         return new DataSourceTransactionManager(dataSource);
     }
+
+    @Bean(name = "pagosMantenimientoDataSource")
+    @ConfigurationProperties("spring.pagos.mantenimiento.hikari")
+    public HikariDataSource pagosMantenimientoDataSource(@Qualifier("pagosDataSourceProperties") DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("pagos-mantenimiento");
+        dataSource.setMaximumPoolSize(2);
+        dataSource.setMinimumIdle(0);
+        dataSource.setConnectionTimeout(10_000);
+        SqlServerDriverTuning.aplicar(dataSource);
+        return dataSource;
+    }
+
+    @Bean(name = "pagosMantenimientoJdbcTemplate")
+    public JdbcTemplate pagosMantenimientoJdbcTemplate(@Qualifier("pagosMantenimientoDataSource") DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean(name = "pagosMantenimientoTransactionManager")
+    public PlatformTransactionManager pagosMantenimientoTransactionManager(@Qualifier("pagosMantenimientoDataSource") DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
 }
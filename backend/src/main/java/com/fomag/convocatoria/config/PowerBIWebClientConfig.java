@@ -0,0 +1,47 @@
+package com.fomag.convocatoria.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Cliente HTTP compartido para Entra ID y la API de Power BI: un único pool de conexiones
+ * Reactor Netty reutilizado entre solicitudes, con timeouts de conexión y de respuesta.
+ */
+@Configuration
+public class PowerBIWebClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider powerBIConnectionProvider(@Value("${pbi.http.max-connections:50}") int maxConexiones,
+                                                        @Value("${pbi.http.pending-acquire-timeout-ms:2000}") long esperaConexionMs,
+                                                        @Value("${pbi.http.max-idle-seconds:30}") long maxInactividadSegundos) {
+        return ConnectionProvider.builder("powerbi")
+                .maxConnections(maxConexiones)
+                .pendingAcquireTimeout(Duration.ofMillis(esperaConexionMs))
+                .maxIdleTime(Duration.ofSeconds(maxInactividadSegundos))
+                .maxLifeTime(Duration.ofMinutes(5))
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean(name = "powerBIWebClient")
+    public WebClient powerBIWebClient(WebClient.Builder webClientBuilder,
+                                      ConnectionProvider powerBIConnectionProvider,
+                                      @Value("${pbi.http.connect-timeout-ms:3000}") int timeoutConexionMs,
+                                      @Value("${pbi.http.response-timeout-ms:10000}") long timeoutRespuestaMs) {
+        HttpClient httpClient = HttpClient.create(powerBIConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutConexionMs)
+                .responseTimeout(Duration.ofMillis(timeoutRespuestaMs));
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -2,6 +2,7 @@ package com.fomag.convocatoria.config;
 
 import javax.sql.DataSource;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -13,6 +14,9 @@ import org.springframework.jdbc.core.JdbcTemplate;
 /**
  * Configura el datasource principal (convocatoria) para que siga siendo el
  * que usa JPA/JdbcTemplate aun cuando exista el datasource secundario de pagos.
+ * <p>
+ * El pool se ajusta para la carga OLTP del registro; cualquier valor puede
+ * sobrescribirse con {@code spring.datasource.hikari.*}.
  */
 @Configuration
 public class PrimaryDataSourceConfig {
@@ -26,8 +30,15 @@ public class PrimaryDataSourceConfig {
 
     @Bean(name = "dataSource")
     @Primary
-    public DataSource dataSource(@Qualifier("mainDataSourceProperties") DataSourceProperties properties) {
-        return properties.initializeDataSourceBuilder().build();
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(@Qualifier("mainDataSourceProperties") DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("convocatoria");
+        dataSource.setMaximumPoolSize(20);
+        dataSource.setMinimumIdle(5);
+        dataSource.setConnectionTimeout(5_000);
+        SqlServerDriverTuning.aplicar(dataSource);
+        return dataSource;
     }
 
     @Bean
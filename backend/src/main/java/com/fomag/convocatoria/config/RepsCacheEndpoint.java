@@ -0,0 +1,39 @@
+package com.fomag.convocatoria.config;
+
+import com.fomag.convocatoria.service.RepsServiciosCache;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/repscache}: consulta el tamaño del snapshot REPS y permite invalidarlo
+ * (completo o por NIT) después de recargar las tablas REPS.
+ */
+@Component
+@Endpoint(id = "repscache")
+public class RepsCacheEndpoint {
+
+    private final RepsServiciosCache repsServiciosCache;
+
+    public RepsCacheEndpoint(RepsServiciosCache repsServiciosCache) {
+        this.repsServiciosCache = repsServiciosCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> estado() {
+        return Map.of("entradas", repsServiciosCache.tamano());
+    }
+
+    @DeleteOperation
+    public void invalidar(@Nullable String nit) {
+        if (nit == null || nit.isBlank()) {
+            repsServiciosCache.invalidarTodo();
+        } else {
+            repsServiciosCache.invalidar(nit.trim());
+        }
+    }
+}
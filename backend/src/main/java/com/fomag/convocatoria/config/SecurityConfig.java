@@ -1,15 +1,21 @@
 package com.fomag.convocatoria.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import com.fomag.convocatoria.security.JwtAuthFilter;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -28,14 +34,53 @@ public class SecurityConfig {
         this.jwtAuthFilter = jwtAuthFilter;
     }
 
+    /**
+     * Los endpoints operativos (atencionestado, catalogos, repscache) ejecutan escrituras, así que no
+     * aceptan el JWT de los prestadores: exigen HTTP Basic con la credencial de administración
+     * ({@code actuator.admin.usuario} y el hash BCrypt en {@code actuator.admin.clave-hash}).
+     * Sin credencial configurada quedan cerrados.
+     */
     @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http,
+                                                   PasswordEncoder passwordEncoder,
+                                                   @Value("${actuator.admin.usuario:}") String usuario,
+                                                   @Value("${actuator.admin.clave-hash:}") String claveHash) throws Exception {
+        boolean configurado = !usuario.isBlank() && !claveHash.isBlank();
+        InMemoryUserDetailsManager usuarios = new InMemoryUserDetailsManager();
+        if (configurado) {
+            usuarios.createUser(User.withUsername(usuario).password(claveHash).roles("ADMIN").build());
+        }
+        DaoAuthenticationProvider proveedor = new DaoAuthenticationProvider();
+        proveedor.setUserDetailsService(usuarios);
+        proveedor.setPasswordEncoder(passwordEncoder);
+
+        http
+                .securityMatcher("/actuator/**")
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authenticationManager(new ProviderManager(proveedor))
+                .authorizeHttpRequests(auth -> {
+                    auth.requestMatchers("/actuator/health", "/actuator/info").permitAll();
+                    if (configurado) {
+                        auth.anyRequest().hasRole("ADMIN");
+                    } else {
+                        auth.anyRequest().denyAll();
+                    }
+                })
+                .httpBasic(Customizer.withDefaults());
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
                 .cors(Customizer.withDefaults())
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/acceso/**", "/actuator/health", "/actuator/info").permitAll()
+                        .requestMatchers("/api/acceso/**").permitAll()
                         .requestMatchers("/api/pbi/**").authenticated()
                         .anyRequest().permitAll())
                 .exceptionHandling(ex -> ex.authenticationEntryPoint(
@@ -44,9 +89,13 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * El costo es configurable; los hashes con un costo distinto se recalculan al iniciar sesión
+     * ({@code ClaveHashService.requiereActualizacion}).
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
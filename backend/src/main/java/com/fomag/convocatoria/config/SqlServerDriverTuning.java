@@ -0,0 +1,28 @@
+package com.fomag.convocatoria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Propiedades del driver mssql-jdbc comunes a todos los pools. Se aplican antes del
+ * binding de {@code *.hikari.data-source-properties}, que puede sobrescribirlas.
+ */
+final class SqlServerDriverTuning {
+
+    private SqlServerDriverTuning() {
+    }
+
+    static void aplicar(HikariDataSource dataSource) {
+        // Caché de sentencias preparadas por conexión
+        dataSource.addDataSourceProperty("disableStatementPooling", "false");
+        dataSource.addDataSourceProperty("statementPoolingCacheSize", "100");
+    }
+
+    /**
+     * Envía los parámetros String como VARCHAR: evita la conversión implícita a NVARCHAR que impide
+     * el seek en los índices VARCHAR de fomagf. Solo para pools de lectura; en los que escriben
+     * columnas NVARCHAR se perderían los caracteres fuera de la página de códigos de la base.
+     */
+    static void parametrosComoVarchar(HikariDataSource dataSource) {
+        dataSource.addDataSourceProperty("sendStringParametersAsUnicode", "false");
+    }
+}
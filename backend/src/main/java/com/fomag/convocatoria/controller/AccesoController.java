@@ -1,6 +1,7 @@
 package com.fomag.convocatoria.controller;
 
 import com.fomag.convocatoria.api.ApiResponse;
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.security.JwtService;
 import com.fomag.convocatoria.service.AccesoService;
 import jakarta.validation.constraints.NotBlank;
@@ -27,7 +28,7 @@ public class AccesoController {
     @GetMapping("/estado")
     public ApiResponse<AccesoService.EstadoAcceso> estado(@RequestParam("nit") @NotBlank String nit) {
         return ApiResponse.<AccesoService.EstadoAcceso>builder()
-                .data(accesoService.estado(nit.trim()))
+                .data(accesoService.estado(NitNormalizer.normalizar(nit)))
                 .build();
     }
 
@@ -35,13 +36,13 @@ public class AccesoController {
 
     @PostMapping("/crear")
     public ResponseEntity<Void> crear(@RequestBody ClavePayload payload) {
-        accesoService.crearClave(payload.nit().trim(), payload.clave().trim());
+        accesoService.crearClave(NitNormalizer.normalizar(payload.nit()), payload.clave().trim());
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/login")
     public ResponseEntity<LoginResponse> login(@RequestBody ClavePayload payload) {
-        String nit = payload.nit().trim();
+        String nit = NitNormalizer.normalizar(payload.nit());
         accesoService.validarIngreso(nit, payload.clave().trim());
         String token = jwtService.generateToken(nit);
         return ResponseEntity.ok(new LoginResponse(nit, token));
@@ -51,7 +52,7 @@ public class AccesoController {
 
     @GetMapping("/recuperacion/preguntas")
     public AccesoService.RecuperacionPreguntas preguntas(@RequestParam("nit") @NotBlank String nit) {
-        return accesoService.obtenerPreguntas(nit.trim());
+        return accesoService.obtenerPreguntas(NitNormalizer.normalizar(nit));
     }
 
     public record ValidarRequest(
@@ -61,7 +62,7 @@ public class AccesoController {
 
     @PostMapping("/recuperacion/validar")
     public AccesoService.RecuperacionValidacion validar(@RequestBody ValidarRequest request) {
-        return accesoService.validarPreguntas(request.nit().trim(), request.desafioId().trim(), request.respuestas());
+        return accesoService.validarPreguntas(NitNormalizer.normalizar(request.nit()), request.desafioId().trim(), request.respuestas());
     }
 
     public record RestablecerRequest(@NotBlank String tokenRecuperacion,
@@ -1,11 +1,15 @@
 package com.fomag.convocatoria.controller;
 
 import com.fomag.convocatoria.api.ApiResponse;
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.api.dto.ActualizarAtencionRequest;
 import com.fomag.convocatoria.api.dto.AtencionSedeDto;
 import com.fomag.convocatoria.api.dto.AtencionSedeEstadoDto;
+import com.fomag.convocatoria.api.dto.AtencionSedeHistorialDto;
 import com.fomag.convocatoria.service.AtencionService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -32,7 +36,7 @@ public class AtencionController {
     @GetMapping("/sedes")
     public ApiResponse<List<AtencionSedeEstadoDto>> sedes(@RequestParam("nit") @NotBlank String nit) {
         return ApiResponse.<List<AtencionSedeEstadoDto>>builder()
-                .data(atencionService.listarSedes(nit.trim()))
+                .data(atencionService.listarSedes(NitNormalizer.normalizar(nit)))
                 .build();
     }
 
@@ -41,12 +45,23 @@ public class AtencionController {
             @RequestParam("nit") @NotBlank String nit,
             @RequestParam("cod") @NotBlank String cod) {
         return ApiResponse.<AtencionSedeDto>builder()
-                .data(atencionService.obtenerSede(nit.trim(), cod.trim()))
+                .data(atencionService.obtenerSede(NitNormalizer.normalizar(nit), cod.trim()))
+                .build();
+    }
+
+    @GetMapping("/sede/historial")
+    public ApiResponse<List<AtencionSedeHistorialDto>> historial(
+            @RequestParam("nit") @NotBlank String nit,
+            @RequestParam("cod") @NotBlank String cod,
+            @RequestParam(value = "limite", defaultValue = "50") @Min(1) @Max(500) int limite) {
+        return ApiResponse.<List<AtencionSedeHistorialDto>>builder()
+                .data(atencionService.obtenerHistorial(NitNormalizer.normalizar(nit), cod.trim(), limite))
                 .build();
     }
 
     @PutMapping("/sede")
     public ResponseEntity<Void> guardar(@Valid @RequestBody ActualizarAtencionRequest request) {
+        request.setNit(NitNormalizer.normalizar(request.getNit()));
         atencionService.guardar(request);
         return ResponseEntity.ok().build();
     }
@@ -1,5 +1,6 @@
 package com.fomag.convocatoria.controller;
 
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.api.dto.AtencionUsuariosRequest;
 import com.fomag.convocatoria.service.AtencionUsuariosService;
 import jakarta.validation.Valid;
@@ -21,6 +22,7 @@ public class AtencionUsuariosController {
 
     @PostMapping
     public ResponseEntity<Void> registrar(@Valid @RequestBody AtencionUsuariosRequest request) {
+        request.setNit(NitNormalizer.normalizar(request.getNit()));
         atencionUsuariosService.registrar(request);
         return ResponseEntity.ok().build();
     }
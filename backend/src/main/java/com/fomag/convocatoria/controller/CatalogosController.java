@@ -2,22 +2,37 @@ package com.fomag.convocatoria.controller;
 
 import com.fomag.convocatoria.api.ApiResponse;
 import com.fomag.convocatoria.api.dto.DepartamentoDto;
+import com.fomag.convocatoria.api.dto.DepartamentoGeografiaDto;
 import com.fomag.convocatoria.api.dto.MunicipioDto;
 import com.fomag.convocatoria.service.CatalogosService;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+/**
+ * Los catálogos se sirven desde memoria con un ETag débil ({@code W/"versión"}): Tomcat no comprime
+ * respuestas con ETag fuerte, y la versión identifica el contenido, no los bytes comprimidos. Si el
+ * If-None-Match del cliente coincide con la versión vigente se responde 304 sin armar el cuerpo.
+ */
 @RestController
 @RequestMapping("/api/catalogos")
 @Validated
 public class CatalogosController {
 
+    private static final CacheControl CACHE_CATALOGOS = CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+
     private final CatalogosService catalogosService;
 
     public CatalogosController(CatalogosService catalogosService) {
@@ -25,16 +40,62 @@ public class CatalogosController {
     }
 
     @GetMapping("/departamentos")
-    public ApiResponse<List<DepartamentoDto>> departamentos() {
-        return ApiResponse.<List<DepartamentoDto>>builder()
+    public ResponseEntity<ApiResponse<List<DepartamentoDto>>> departamentos(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conCache(ifNoneMatch, () -> ApiResponse.<List<DepartamentoDto>>builder()
                 .data(catalogosService.obtenerDepartamentos())
-                .build();
+                .build());
     }
 
     @GetMapping("/municipios")
-    public ApiResponse<List<MunicipioDto>> municipios(@RequestParam("departamentoId") @NotBlank String departamentoId) {
-        return ApiResponse.<List<MunicipioDto>>builder()
+    public ResponseEntity<ApiResponse<List<MunicipioDto>>> municipios(
+            @RequestParam("departamentoId") @NotBlank String departamentoId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conCache(ifNoneMatch, () -> ApiResponse.<List<MunicipioDto>>builder()
                 .data(catalogosService.obtenerMunicipiosPorDepartamento(departamentoId))
-                .build();
+                .build());
+    }
+
+    @GetMapping("/geografia")
+    public ResponseEntity<ApiResponse<List<DepartamentoGeografiaDto>>> geografia(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conCache(ifNoneMatch, () -> ApiResponse.<List<DepartamentoGeografiaDto>>builder()
+                .data(catalogosService.obtenerGeografia())
+                .build());
+    }
+
+    private <T> ResponseEntity<T> conCache(String ifNoneMatch, Supplier<T> body) {
+        String version = catalogosService.version();
+        String etag = "W/\"" + version + "\"";
+        if (coincide(ifNoneMatch, version)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CACHE_CATALOGOS)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CACHE_CATALOGOS)
+                .body(body.get());
+    }
+
+    /** Comparación débil (RFC 9110 §8.8.3.2): se ignora el prefijo W/ en ambos lados. */
+    private static boolean coincide(String ifNoneMatch, String version) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String etiqueta : ifNoneMatch.split(",")) {
+            String valor = etiqueta.trim();
+            if (valor.equals("*")) {
+                return true;
+            }
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("\"" + version + "\"")) {
+                return true;
+            }
+        }
+        return false;
     }
 }
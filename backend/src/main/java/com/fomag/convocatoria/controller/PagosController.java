@@ -1,21 +1,29 @@
 package com.fomag.convocatoria.controller;
 
 import com.fomag.convocatoria.api.ApiResponse;
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.api.dto.PagoResumenResponse;
 import com.fomag.convocatoria.api.dto.PagoRadicacionPage;
 import com.fomag.convocatoria.service.PagosService;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -23,6 +31,8 @@ import java.util.Optional;
 @Validated
 public class PagosController {
 
+    private static final int MAX_MESES_RANGO = 36;
+
     private final PagosService pagosService;
 
     public PagosController(PagosService pagosService) {
@@ -46,7 +56,7 @@ public class PagosController {
                     .build();
             return ResponseEntity.badRequest().body(error);
         }
-        Optional<PagoResumenResponse> pago = pagosService.consultarPorNitYPeriodo(nit.trim(), yearMonth);
+        Optional<PagoResumenResponse> pago = pagosService.consultarPorNitYPeriodo(NitNormalizer.normalizar(nit), yearMonth);
 
         if (pago.isEmpty()) {
             ApiResponse<PagoResumenResponse> error = ApiResponse.<PagoResumenResponse>builder()
@@ -63,6 +73,42 @@ public class PagosController {
                 .build());
     }
 
+    @GetMapping(value = "/estado", params = {"desde", "hasta"})
+    public ResponseEntity<ApiResponse<List<PagoResumenResponse>>> estadoPagoPorRango(
+            @RequestParam("nit") @NotBlank String nit,
+            @RequestParam("desde") @Pattern(regexp = "\\d{4}-\\d{2}", message = "desde debe tener formato YYYY-MM") String desde,
+            @RequestParam("hasta") @Pattern(regexp = "\\d{4}-\\d{2}", message = "hasta debe tener formato YYYY-MM") String hasta
+    ) {
+        YearMonth ymDesde;
+        YearMonth ymHasta;
+        try {
+            ymDesde = YearMonth.parse(desde);
+            ymHasta = YearMonth.parse(hasta);
+        } catch (DateTimeParseException ex) {
+            ApiResponse<List<PagoResumenResponse>> error = ApiResponse.<List<PagoResumenResponse>>builder()
+                    .error(ApiResponse.ErrorData.builder()
+                            .code("PERIODO_INVALIDO")
+                            .message("Los periodos deben tener formato YYYY-MM.")
+                            .build())
+                    .build();
+            return ResponseEntity.badRequest().body(error);
+        }
+        if (ymHasta.isBefore(ymDesde) || ymDesde.plusMonths(MAX_MESES_RANGO).isBefore(ymHasta)) {
+            ApiResponse<List<PagoResumenResponse>> error = ApiResponse.<List<PagoResumenResponse>>builder()
+                    .error(ApiResponse.ErrorData.builder()
+                            .code("RANGO_INVALIDO")
+                            .message("El rango debe ir de desde a hasta y cubrir como máximo " + MAX_MESES_RANGO + " meses.")
+                            .build())
+                    .build();
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        List<PagoResumenResponse> meses = pagosService.consultarPorNitYRango(NitNormalizer.normalizar(nit), ymDesde, ymHasta);
+        return ResponseEntity.ok(ApiResponse.<List<PagoResumenResponse>>builder()
+                .data(meses)
+                .build());
+    }
+
     @GetMapping("/radicaciones")
     public ResponseEntity<ApiResponse<PagoRadicacionPage>> radicaciones(
             @RequestParam("nit") @NotBlank String nit,
@@ -70,7 +116,9 @@ public class PagosController {
             @RequestParam(value = "ini", required = false) @Pattern(regexp = "\\d{4}-\\d{2}-\\d{2}", message = "Fecha ini debe ser YYYY-MM-DD") String ini,
             @RequestParam(value = "fin", required = false) @Pattern(regexp = "\\d{4}-\\d{2}-\\d{2}", message = "Fecha fin debe ser YYYY-MM-DD") String fin,
             @RequestParam(value = "prefijo", required = false) String prefijo,
-            @RequestParam(value = "page", defaultValue = "0") int page
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "cursor", required = false) String cursor
     ) {
         if (page < 0) page = 0;
         LocalDate fechaIni;
@@ -103,10 +151,46 @@ public class PagosController {
             return ResponseEntity.badRequest().body(error);
         }
 
-        PagoRadicacionPage pageResult = pagosService.consultarRadicaciones(nit.trim(), fechaIni, fechaFinExcl, prefijo, page);
+        PagoRadicacionPage pageResult = pagosService.consultarRadicaciones(NitNormalizer.normalizar(nit), fechaIni, fechaFinExcl, prefijo, page, size, cursor);
 
         return ResponseEntity.ok(ApiResponse.<PagoRadicacionPage>builder()
                 .data(pageResult)
                 .build());
     }
+
+    @GetMapping("/radicaciones/export")
+    public ResponseEntity<StreamingResponseBody> exportarRadicaciones(
+            @RequestParam("nit") @NotBlank String nit,
+            @RequestParam(value = "periodo", required = false) @Pattern(regexp = "\\d{4}-\\d{2}", message = "El periodo debe tener formato YYYY-MM") String periodo,
+            @RequestParam(value = "ini", required = false) @Pattern(regexp = "\\d{4}-\\d{2}-\\d{2}", message = "Fecha ini debe ser YYYY-MM-DD") String ini,
+            @RequestParam(value = "fin", required = false) @Pattern(regexp = "\\d{4}-\\d{2}-\\d{2}", message = "Fecha fin debe ser YYYY-MM-DD") String fin,
+            @RequestParam(value = "prefijo", required = false) String prefijo
+    ) {
+        LocalDate fechaIni;
+        LocalDate fechaFinExcl;
+        try {
+            if (ini != null && fin != null) {
+                fechaIni = LocalDate.parse(ini);
+                fechaFinExcl = LocalDate.parse(fin);
+            } else if (periodo != null) {
+                YearMonth ym = YearMonth.parse(periodo);
+                fechaIni = ym.atDay(1);
+                fechaFinExcl = ym.plusMonths(1).atDay(1);
+            } else {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Debes enviar periodo (YYYY-MM) o rango ini/fin (YYYY-MM-DD).");
+            }
+        } catch (DateTimeParseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formato de fechas inválido.");
+        }
+
+        String nitNormalizado = NitNormalizer.normalizar(nit);
+        StreamingResponseBody body = salida ->
+                pagosService.exportarRadicacionesCsv(nitNormalizado, fechaIni, fechaFinExcl, prefijo, salida);
+
+        String archivo = "radicaciones_" + nitNormalizado.replaceAll("[^0-9A-Za-z]", "") + "_" + fechaIni + ".csv";
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
 }
@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/api/pbi")
@@ -17,7 +18,7 @@ public class PowerBIEmbedController {
     private final PowerBIService powerBIService;
 
     @GetMapping("/embed-config")
-    public PowerBIService.EmbedConfig embedConfig(@AuthenticationPrincipal String nit) {
+    public Mono<PowerBIService.EmbedConfig> embedConfig(@AuthenticationPrincipal String nit) {
         if (nit == null || nit.isBlank()) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token invalido");
         }
@@ -1,6 +1,7 @@
 package com.fomag.convocatoria.controller;
 
 import com.fomag.convocatoria.api.ApiResponse;
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.domain.model.Prestador;
 import com.fomag.convocatoria.service.PrestadorService;
 import jakarta.validation.constraints.NotBlank;
@@ -26,7 +27,7 @@ public class PrestadorController {
 
     @GetMapping
     public ResponseEntity<ApiResponse<Prestador>> buscarPorNit(@RequestParam("nit") @NotBlank String nit) {
-        Optional<Prestador> prestador = prestadorService.buscarPorNit(nit.trim());
+        Optional<Prestador> prestador = prestadorService.buscarPorNit(NitNormalizer.normalizar(nit));
 
         if (prestador.isEmpty()) {
             ApiResponse<Prestador> error = ApiResponse.<Prestador>builder()
@@ -45,7 +46,7 @@ public class PrestadorController {
 
     @GetMapping("/sst/existe")
     public ApiResponse<Boolean> existeSst(@RequestParam("nit") @NotBlank String nit) {
-        boolean existe = prestadorService.existeRegistroSst(nit.trim());
+        boolean existe = prestadorService.existeRegistroSst(NitNormalizer.normalizar(nit));
         return ApiResponse.<Boolean>builder().data(existe).build();
     }
 }
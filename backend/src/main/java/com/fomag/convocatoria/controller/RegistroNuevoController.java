@@ -1,5 +1,6 @@
 package com.fomag.convocatoria.controller;
 
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.api.dto.RegistroNuevoRequest;
 import com.fomag.convocatoria.service.RegistroNuevoService;
 import jakarta.validation.Valid;
@@ -21,6 +22,7 @@ public class RegistroNuevoController {
 
     @PostMapping
     public ResponseEntity<Void> registrar(@Valid @RequestBody RegistroNuevoRequest request) {
+        request.setNit(NitNormalizer.normalizar(request.getNit()));
         registroNuevoService.registrarNuevo(request);
         return ResponseEntity.ok().build();
     }
@@ -2,6 +2,7 @@ package com.fomag.convocatoria.controller;
 
 import com.fomag.convocatoria.api.dto.RegistroSstRequest;
 import com.fomag.convocatoria.api.ApiResponse;
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.service.RegistroSstService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -30,12 +31,14 @@ public class RegistroSstController {
 
     @PostMapping
     public ResponseEntity<Void> registrar(@Valid @RequestBody RegistroSstRequest request) {
+        request.setNit(NitNormalizer.normalizar(request.getNit()));
         registroSstService.registrarSst(request);
         return ResponseEntity.ok().build();
     }
 
     @PutMapping("/sede")
     public ResponseEntity<Void> actualizarSede(@Valid @RequestBody com.fomag.convocatoria.api.dto.ActualizarSedeSstRequest request) {
+        request.setNit(NitNormalizer.normalizar(request.getNit()));
         registroSstService.actualizarSede(request);
         return ResponseEntity.ok().build();
     }
@@ -44,7 +47,7 @@ public class RegistroSstController {
     public ApiResponse<List<RegistroSstService.SedeSstDto>> listarSedes(
             @RequestParam("nit") @NotBlank String nit) {
         return ApiResponse.<List<RegistroSstService.SedeSstDto>>builder()
-                .data(registroSstService.listarSedes(nit.trim()))
+                .data(registroSstService.listarSedes(NitNormalizer.normalizar(nit)))
                 .build();
     }
 }
@@ -1,6 +1,7 @@
 package com.fomag.convocatoria.controller;
 
 import com.fomag.convocatoria.api.ApiResponse;
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.api.dto.ActualizarRepresentanteRequest;
 import com.fomag.convocatoria.api.dto.RepresentanteResponse;
 import com.fomag.convocatoria.service.AccesoService;
@@ -33,7 +34,7 @@ public class RepresentanteController {
 
     @GetMapping
     public ApiResponse<RepresentanteResponse> obtener(@RequestParam("nit") @NotBlank String nit) {
-        Optional<RepresentanteResponse> data = representanteService.obtenerPorNit(nit.trim());
+        Optional<RepresentanteResponse> data = representanteService.obtenerPorNit(NitNormalizer.normalizar(nit));
         return ApiResponse.<RepresentanteResponse>builder()
                 .data(data.orElse(null))
                 .build();
@@ -41,6 +42,7 @@ public class RepresentanteController {
 
     @PutMapping
     public ResponseEntity<Void> actualizar(@Valid @RequestBody ActualizarRepresentanteRequest request) {
+        request.setNit(NitNormalizer.normalizar(request.getNit()));
         representanteService.actualizar(request);
         return ResponseEntity.ok().build();
     }
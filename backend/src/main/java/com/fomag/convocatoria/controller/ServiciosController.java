@@ -1,6 +1,7 @@
 package com.fomag.convocatoria.controller;
 
 import com.fomag.convocatoria.api.ApiResponse;
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.api.dto.DireccionServiciosDto;
 import com.fomag.convocatoria.api.dto.RegistroServiciosRequest;
 import com.fomag.convocatoria.service.ServiciosService;
@@ -30,13 +31,13 @@ public class ServiciosController {
 
     @GetMapping
     public ApiResponse<List<DireccionServiciosDto>> obtenerServicios(@RequestParam("nit") @NotBlank String nit) {
-        List<DireccionServiciosDto> data = serviciosService.obtenerServiciosPorNit(nit.trim());
+        List<DireccionServiciosDto> data = serviciosService.obtenerServiciosPorNit(NitNormalizer.normalizar(nit));
         return ApiResponse.<List<DireccionServiciosDto>>builder().data(data).build();
     }
 
     @PostMapping("/registro")
     public ResponseEntity<Void> registrarServicios(@Valid @RequestBody RegistroServiciosRequest request) {
-        serviciosService.registrarServicios(request);
+        serviciosService.registrarServicios(request.withNit(NitNormalizer.normalizar(request.getNit())));
         return ResponseEntity.ok().build();
     }
 }
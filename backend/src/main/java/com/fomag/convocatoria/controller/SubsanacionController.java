@@ -1,6 +1,7 @@
 package com.fomag.convocatoria.controller;
 
 import com.fomag.convocatoria.api.ApiResponse;
+import com.fomag.convocatoria.api.NitNormalizer;
 import com.fomag.convocatoria.api.dto.ArchivoDto;
 import com.fomag.convocatoria.api.dto.SubsanacionEvaluacionResponse;
 import com.fomag.convocatoria.service.SubsanacionService;
@@ -25,27 +26,27 @@ public class SubsanacionController {
 
     @GetMapping("/evaluacion")
     public ApiResponse<SubsanacionEvaluacionResponse> evaluacion(@RequestParam("nit") @NotBlank String nit) {
-        SubsanacionEvaluacionResponse data = subsanacionService.obtenerEvaluacion(nit.trim());
+        SubsanacionEvaluacionResponse data = subsanacionService.obtenerEvaluacion(NitNormalizer.normalizar(nit));
         return ApiResponse.<SubsanacionEvaluacionResponse>builder().data(data).build();
     }
 
     @GetMapping("/soportes")
     public ApiResponse<List<ArchivoDto>> listar(@RequestParam("nit") @NotBlank String nit) {
-        List<ArchivoDto> data = subsanacionService.listarSoportes(nit.trim());
+        List<ArchivoDto> data = subsanacionService.listarSoportes(NitNormalizer.normalizar(nit));
         return ApiResponse.<List<ArchivoDto>>builder().data(data).build();
     }
 
     @PostMapping("/soportes")
     public ResponseEntity<Void> subir(@RequestParam("nit") @NotBlank String nit,
                                       @RequestParam("files") MultipartFile[] files) {
-        subsanacionService.subirSoportes(nit.trim(), files);
+        subsanacionService.subirSoportes(NitNormalizer.normalizar(nit), files);
         return ResponseEntity.ok().build();
     }
 
     @DeleteMapping("/soportes")
     public ResponseEntity<Void> eliminar(@RequestParam("nit") @NotBlank String nit,
                                          @RequestParam("archivo") @NotBlank String archivo) {
-        subsanacionService.eliminarSoporte(nit.trim(), archivo.trim());
+        subsanacionService.eliminarSoporte(NitNormalizer.normalizar(nit), archivo.trim());
         return ResponseEntity.ok().build();
     }
 }
@@ -0,0 +1,31 @@
+package com.fomag.convocatoria.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Escritura por lotes sobre el datasource principal. Envía las filas con
+ * {@link JdbcTemplate#batchUpdate(String, List)} en bloques de {@code registro.batch-size}
+ * para no hacer un round trip por fila dentro de la transacción del registro.
+ */
+@Component
+public class JdbcBatchWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanoLote;
+
+    public JdbcBatchWriter(JdbcTemplate jdbcTemplate, @Value("${registro.batch-size:500}") int tamanoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanoLote = Math.max(1, tamanoLote);
+    }
+
+    public void ejecutar(String sql, List<Object[]> filas) {
+        for (int desde = 0; desde < filas.size(); desde += tamanoLote) {
+            int hasta = Math.min(desde + tamanoLote, filas.size());
+            jdbcTemplate.batchUpdate(sql, filas.subList(desde, hasta));
+        }
+    }
+}
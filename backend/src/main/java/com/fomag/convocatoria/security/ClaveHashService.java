@@ -0,0 +1,140 @@
+package com.fomag.convocatoria.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ejecuta BCrypt en un pool acotado para que los picos de inicio de sesión no saturen todos los
+ * núcleos. Si la cola está llena (o la espera supera {@code security.bcrypt.timeout-ms}) se responde
+ * 503 de inmediato en lugar de degradar el resto de endpoints.
+ */
+@Slf4j
+@Service
+public class ClaveHashService {
+
+    private static final Pattern PREFIJO_BCRYPT = Pattern.compile("\\$2[aby]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final int costo;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final Timer tiempoCodificar;
+    private final Timer tiempoVerificar;
+    private final Counter rechazos;
+
+    public ClaveHashService(PasswordEncoder passwordEncoder,
+                            @Value("${security.bcrypt.strength:10}") int costo,
+                            @Value("${security.bcrypt.threads:0}") int hilos,
+                            @Value("${security.bcrypt.queue-size:64}") int tamanoCola,
+                            @Value("${security.bcrypt.timeout-ms:10000}") long timeoutMs,
+                            MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.costo = costo;
+        this.timeoutMs = timeoutMs;
+        int tamanoPool = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger secuencia = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(tamanoPool, tamanoPool, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(tamanoCola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "bcrypt-" + secuencia.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.tiempoCodificar = Timer.builder("bcrypt.duracion").tag("operacion", "codificar")
+                .description("Tiempo de cómputo BCrypt").register(meterRegistry);
+        this.tiempoVerificar = Timer.builder("bcrypt.duracion").tag("operacion", "verificar")
+                .description("Tiempo de cómputo BCrypt").register(meterRegistry);
+        this.rechazos = Counter.builder("bcrypt.rechazos")
+                .description("Operaciones BCrypt rechazadas por cola llena o tiempo de espera agotado")
+                .register(meterRegistry);
+        Gauge.builder("bcrypt.cola", executor, e -> e.getQueue().size())
+                .description("Operaciones BCrypt en espera")
+                .register(meterRegistry);
+        Gauge.builder("bcrypt.activos", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Operaciones BCrypt en ejecución")
+                .register(meterRegistry);
+    }
+
+    public String codificar(String clave) {
+        return ejecutar(() -> tiempoCodificar.recordCallable(() -> passwordEncoder.encode(clave)));
+    }
+
+    public boolean coincide(String clave, String hash) {
+        Boolean resultado = ejecutar(() -> tiempoVerificar.recordCallable(() -> passwordEncoder.matches(clave, hash)));
+        return Boolean.TRUE.equals(resultado);
+    }
+
+    /**
+     * Indica si el hash fue generado con un costo distinto al configurado y debe recalcularse. Se
+     * compara el costo del prefijo ({@code $2a$10$...}); {@code upgradeEncoding} de BCrypt solo
+     * detecta costos menores y no permitiría bajar el costo configurado.
+     */
+    public boolean requiereActualizacion(String hash) {
+        if (hash == null) {
+            return false;
+        }
+        Matcher matcher = PREFIJO_BCRYPT.matcher(hash);
+        if (!matcher.lookingAt()) {
+            return passwordEncoder.upgradeEncoding(hash);
+        }
+        return Integer.parseInt(matcher.group(1)) != costo;
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(tarea);
+        } catch (RejectedExecutionException e) {
+            rechazos.increment();
+            throw ocupado();
+        }
+        try {
+            return futuro.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            rechazos.increment();
+            throw ocupado();
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw ocupado();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Error calculando BCrypt", e.getCause());
+        }
+    }
+
+    private ResponseStatusException ocupado() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Hay muchos ingresos simultáneos, intente de nuevo en unos segundos");
+    }
+
+    @PreDestroy
+    void cerrar() {
+        executor.shutdownNow();
+    }
+}
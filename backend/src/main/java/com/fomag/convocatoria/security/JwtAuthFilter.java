@@ -20,6 +20,7 @@ import java.util.List;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
 
     public JwtAuthFilter(JwtService jwtService) {
         this.jwtService = jwtService;
@@ -40,7 +41,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             String nit = jwtService.validateAndGetNit(token);
             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                     nit, null, List.of());
-            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            authentication.setDetails(detailsSource.buildDetails(request));
             SecurityContextHolder.getContext().setAuthentication(authentication);
         } catch (ResponseStatusException ex) {
             SecurityContextHolder.clearContext();
@@ -1,9 +1,15 @@
 package com.fomag.convocatoria.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -12,8 +18,12 @@ import org.springframework.web.server.ResponseStatusException;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.Date;
 
 @Service
@@ -22,11 +32,26 @@ public class JwtService {
     private final String secret;
     private final long expirationHours;
     private SecretKey signingKey;
+    private JwtParser parser;
+
+    /**
+     * Tokens ya verificados, por hash SHA-256 del token. Cada entrada vence con el {@code exp} del
+     * token, así que un token expirado nunca se acepta desde la caché.
+     */
+    private final Cache<String, TokenVerificado> verificados;
 
     public JwtService(@Value("${security.jwt.secret}") String secret,
-                      @Value("${security.jwt.expiration-hours:8}") long expirationHours) {
+                      @Value("${security.jwt.expiration-hours:8}") long expirationHours,
+                      @Value("${security.jwt.cache.max-size:10000}") long tamanoCache,
+                      MeterRegistry meterRegistry) {
         this.secret = secret;
         this.expirationHours = expirationHours;
+        this.verificados = Caffeine.newBuilder()
+                .maximumSize(tamanoCache)
+                .expireAfter(new VenceConElToken())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verificados, "jwt.verificados");
     }
 
     @PostConstruct
@@ -38,6 +63,7 @@ public class JwtService {
             throw new IllegalStateException("JWT secret must be at least 32 characters to sign tokens safely");
         }
         signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(signingKey).build();
     }
 
     public String generateToken(String nit) {
@@ -51,15 +77,52 @@ public class JwtService {
     }
 
     public String validateAndGetNit(String token) {
+        if (token == null || token.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token invalido");
+        }
+        String clave = hash(token);
+        TokenVerificado verificado = verificados.getIfPresent(clave);
+        if (verificado != null && verificado.expira().isAfter(Instant.now())) {
+            return verificado.nit();
+        }
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(signingKey)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getExpiration() != null) {
+                verificados.put(clave, new TokenVerificado(claims.getSubject(), claims.getExpiration().toInstant()));
+            }
             return claims.getSubject();
         } catch (JwtException | IllegalArgumentException ex) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token invalido");
         }
     }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private record TokenVerificado(String nit, Instant expira) {}
+
+    private static class VenceConElToken implements Expiry<String, TokenVerificado> {
+
+        @Override
+        public long expireAfterCreate(String clave, TokenVerificado token, long ahora) {
+            Duration vida = Duration.between(Instant.now(), token.expira());
+            return vida.isNegative() ? 0 : vida.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String clave, TokenVerificado token, long ahora, long restante) {
+            return expireAfterCreate(clave, token, ahora);
+        }
+
+        @Override
+        public long expireAfterRead(String clave, TokenVerificado token, long ahora, long restante) {
+            return restante;
+        }
+    }
 }
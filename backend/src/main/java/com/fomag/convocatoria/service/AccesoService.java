@@ -2,18 +2,19 @@ package com.fomag.convocatoria.service;
 
 import com.fomag.convocatoria.persistence.entity.ClaveNitEntity;
 import com.fomag.convocatoria.persistence.repository.ClaveNitRepository;
+import com.fomag.convocatoria.security.ClaveHashService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
@@ -24,13 +25,14 @@ public class AccesoService {
     public record EstadoAcceso(String nit, Modo modo) {}
 
     private final ClaveNitRepository claveNitRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final ClaveHashService claveHashService;
     private final JdbcTemplate jdbcTemplate;
+    private final RecuperacionStore recuperacionStore;
+    private final DistractoresService distractoresService;
+    private final TransactionTemplate transactionTemplate;
 
-    private record Desafio(String nit, String representante, String correo, String celular, String correoAdmin, Instant expira) {}
-
-    private final Map<String, Desafio> desafios = new ConcurrentHashMap<>();
-    private final Map<String, String> tokensRecuperacion = new ConcurrentHashMap<>();
+    @Value("${acceso.recuperacion.token-ttl-minutes:30}")
+    private long minutosToken;
 
     @Transactional(readOnly = true)
     public EstadoAcceso estado(String nit) {
@@ -38,34 +40,47 @@ public class AccesoService {
         return new EstadoAcceso(nit, existe ? Modo.INGRESAR : Modo.CREAR);
     }
 
-    @Transactional
+    /**
+     * BCrypt se calcula antes de abrir la transacción; solo la verificación y el guardado retienen
+     * una conexión.
+     */
     public void crearClave(String nit, String clave) {
-        if (claveNitRepository.existsById(nit)) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Ya existe una clave para este NIT");
-        }
-        ClaveNitEntity entity = new ClaveNitEntity();
-        entity.setNit(nit);
-        entity.setClave(passwordEncoder.encode(clave));
-        claveNitRepository.save(entity);
+        String hash = claveHashService.codificar(clave);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (claveNitRepository.existsById(nit)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Ya existe una clave para este NIT");
+            }
+            ClaveNitEntity entity = new ClaveNitEntity();
+            entity.setNit(nit);
+            entity.setClave(hash);
+            claveNitRepository.save(entity);
+        });
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Sin transacción envolvente: BCrypt puede tardar y no debe retener una conexión del pool.
+     */
     public void validarIngreso(String nit, String clave) {
         ClaveNitEntity entity = claveNitRepository.findById(nit)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Clave incorrecta"));
 
-        if (!passwordEncoder.matches(clave, entity.getClave())) {
+        if (!claveHashService.coincide(clave, entity.getClave())) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Clave incorrecta");
         }
+
+        // Hash con un costo desactualizado: se recalcula con la clave ya verificada.
+        if (claveHashService.requiereActualizacion(entity.getClave())) {
+            entity.setClave(claveHashService.codificar(clave));
+            claveNitRepository.save(entity);
+        }
     }
 
-    @Transactional(readOnly = true)
+    @Transactional
     public RecuperacionPreguntas obtenerPreguntas(String nit) {
         var data = jdbcTemplate.query("""
-                SELECT TOP 1 representante_legal, correo_representante, celular_representante, correo_admin
-                FROM dbo.registro_prestadores
-                WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-                ORDER BY fecha_registro DESC
+                SELECT representante_legal, correo_representante, celular_representante, correo_admin
+                FROM dbo.prestador_perfil
+                WHERE nit = ?
                 """, rs -> rs.next() ? new String[]{
                         rs.getString("representante_legal"),
                         rs.getString("correo_representante"),
@@ -84,55 +99,65 @@ public class AccesoService {
 
         String desafioId = UUID.randomUUID().toString();
         Instant expira = Instant.now().plus(15, ChronoUnit.MINUTES);
-        desafios.put(desafioId, new Desafio(nit, representante, correo, celular, correoAdmin, expira));
+        recuperacionStore.guardarDesafio(desafioId,
+                new RecuperacionStore.Desafio(nit, representante, correo, celular, correoAdmin, expira));
 
         return new RecuperacionPreguntas(
                 desafioId,
                 List.of(
-                        new Pregunta("representante", "¿Quién es el representante legal?", opciones("representante_legal", representante)),
-                        new Pregunta("correo", "¿Cuál es el correo del representante?", opciones("correo_representante", correo)),
-                        new Pregunta("celular", "¿Cuál es el celular del representante?", opciones("celular_representante", celular))
+                        new Pregunta("representante", "¿Quién es el representante legal?", opciones(DistractoresService.REPRESENTANTE, representante)),
+                        new Pregunta("correo", "¿Cuál es el correo del representante?", opciones(DistractoresService.CORREO, correo)),
+                        new Pregunta("celular", "¿Cuál es el celular del representante?", opciones(DistractoresService.CELULAR, celular))
                 )
         );
     }
 
-    @Transactional(readOnly = true)
+    @Transactional
     public RecuperacionValidacion validarPreguntas(String nit, String desafioId, Map<String, String> respuestas) {
-        Desafio desafio = desafios.get(desafioId);
-        if (desafio == null || desafio.expira.isBefore(Instant.now()) || !desafio.nit.equals(nit)) {
+        RecuperacionStore.Desafio desafio = recuperacionStore.obtenerDesafio(desafioId).orElse(null);
+        if (desafio == null || !desafio.nit().equals(nit)) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Desafío inválido o expirado");
         }
-        if (!match(respuestas.get("representante"), desafio.representante)
-                || !match(respuestas.get("correo"), desafio.correo)
-                || !match(respuestas.get("celular"), desafio.celular)) {
+        if (!match(respuestas.get("representante"), desafio.representante())
+                || !match(respuestas.get("correo"), desafio.correo())
+                || !match(respuestas.get("celular"), desafio.celular())) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Respuestas incorrectas");
         }
         String token = UUID.randomUUID().toString();
-        tokensRecuperacion.put(token, nit);
+        recuperacionStore.guardarToken(token, nit, Instant.now().plus(minutosToken, ChronoUnit.MINUTES));
         return new RecuperacionValidacion(
                 token,
-                new DatosRepresentante(desafio.representante, desafio.correo, desafio.celular, desafio.correoAdmin)
+                new DatosRepresentante(desafio.representante(), desafio.correo(), desafio.celular(), desafio.correoAdmin())
         );
     }
 
-    @Transactional
+    /**
+     * El token se valida antes de calcular BCrypt (fuera de la transacción) y se consume junto con
+     * el guardado, para que un fallo al guardar no lo invalide.
+     */
     public void restablecerClave(String tokenRecuperacion, String clave) {
-        String nit = tokensRecuperacion.remove(tokenRecuperacion);
-        if (nit == null) {
+        if (recuperacionStore.obtenerToken(tokenRecuperacion).isEmpty()) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token de recuperación inválido");
         }
-        ClaveNitEntity entity = claveNitRepository.findById(nit).orElseGet(() -> {
-            ClaveNitEntity e = new ClaveNitEntity();
-            e.setNit(nit);
-            return e;
+        String hash = claveHashService.codificar(clave);
+        transactionTemplate.executeWithoutResult(status -> {
+            String nit = recuperacionStore.consumirToken(tokenRecuperacion).orElse(null);
+            if (nit == null) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token de recuperación inválido");
+            }
+            ClaveNitEntity entity = claveNitRepository.findById(nit).orElseGet(() -> {
+                ClaveNitEntity e = new ClaveNitEntity();
+                e.setNit(nit);
+                return e;
+            });
+            entity.setClave(hash);
+            claveNitRepository.save(entity);
         });
-        entity.setClave(passwordEncoder.encode(clave));
-        claveNitRepository.save(entity);
     }
 
     @Transactional(readOnly = true)
     public String validarTokenRecuperacion(String tokenRecuperacion) {
-        String nit = tokensRecuperacion.get(tokenRecuperacion);
+        String nit = recuperacionStore.obtenerToken(tokenRecuperacion).orElse(null);
         if (nit == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token de recuperación inválido");
         }
@@ -148,13 +173,12 @@ public class AccesoService {
     }
 
     private List<String> opciones(String columna, String correcta) {
-        List<String> opciones = new ArrayList<>();
-        String sql = "SELECT TOP 10 " + columna + " AS val FROM dbo.registro_prestadores " +
-                "WHERE " + columna + " IS NOT NULL AND LTRIM(RTRIM(" + columna + ")) <> ? ORDER BY NEWID()";
-        jdbcTemplate.query(sql, rs -> {
-            String v = safe(rs.getString("val"));
-            if (!v.isEmpty()) opciones.add(v);
-        }, correcta);
+        List<String> opciones = new ArrayList<>(distractoresService.obtener(columna, correcta, 10));
+        if (opciones.isEmpty()) {
+            // Sin muestra cargada la única opción sería la respuesta correcta
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "La recuperación de clave no está disponible en este momento; intente más tarde");
+        }
         opciones.add(correcta);
         // eliminar duplicados y mezclar
         List<String> unicos = new ArrayList<>(new LinkedHashSet<>(opciones));
@@ -0,0 +1,153 @@
+package com.fomag.convocatoria.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Mantiene {@code dbo.atencion_sede_estado}: el estado de diligenciamiento de cada sede se calcula
+ * una vez, al escribir en {@code AtencionUsuarios}, en lugar de evaluarse en cada listado.
+ */
+@Slf4j
+@Service
+public class AtencionEstadoService {
+
+    /**
+     * Recalcula el estado de las sedes que cumplen {@code %s} (filtro sobre {@code au}) a partir
+     * de la fila actual de cada (nit, cod_habilitacion).
+     */
+    private static final String RECALCULAR_SQL = """
+        MERGE dbo.atencion_sede_estado WITH (HOLDLOCK) AS t
+        USING (
+            SELECT nit, cod_habilitacion, id, direccion, departamento, municipio, estado
+            FROM (
+                SELECT
+                    nit = au.nit_normalizado,
+                    cod_habilitacion = au.cod_habilitacion_normalizado,
+                    au.id,
+                    direccion = NULLIF(LTRIM(RTRIM(au.direccion)), ''),
+                    departamento = NULLIF(LTRIM(RTRIM(au.departamento)), ''),
+                    municipio = NULLIF(LTRIM(RTRIM(au.municipio)), ''),
+                    estado = CASE WHEN (
+                        COALESCE(LTRIM(RTRIM(au.direccion)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.departamento)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.municipio)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.mecanismo_citas)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.correo_autorizado)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.telefono_fijo)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.celular)),'') = '' AND
+                        au.horario_desde IS NULL AND au.horario_hasta IS NULL AND
+                        COALESCE(LTRIM(RTRIM(au.whatsapp)),'') = '' AND
+                        au.horario_whatsapp_desde IS NULL AND au.horario_whatsapp_hasta IS NULL AND
+                        COALESCE(LTRIM(RTRIM(au.linea_telefonica)),'') = '' AND
+                        au.horario_telefono_desde IS NULL AND au.horario_telefono_hasta IS NULL AND
+                        COALESCE(LTRIM(RTRIM(au.pagina_web)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.correo_no_presencial)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.nombre_coordinador)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.telefono_coordinador)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.correo_coordinador)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.nombre_gerente)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.correo_gerente)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.celular_gerente)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.correo_administrativo)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.telefono_administrativo)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.celular_administrativo)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.Ambulatorio)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.Hospitalario)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.Domiciliario)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.Transporte)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.Insumos)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.Servicio_Exclusivo)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.Servicio_Agenda)),'') = '' AND
+                        COALESCE(LTRIM(RTRIM(au.Servicio_Franjas)),'') = ''
+                    ) THEN 'SIN_DILIGENCIAR' ELSE 'COMPLETA' END
+                FROM AtencionUsuarios au
+                WHERE %s
+                  AND NULLIF(au.cod_habilitacion_normalizado, '') IS NOT NULL
+            ) actual
+        ) AS s
+        ON t.nit = s.nit AND t.cod_habilitacion = s.cod_habilitacion
+        WHEN MATCHED THEN UPDATE SET
+            atencion_id = s.id,
+            direccion = s.direccion,
+            departamento = s.departamento,
+            municipio = s.municipio,
+            estado = s.estado,
+            actualizado_en = SYSDATETIME()
+        WHEN NOT MATCHED BY TARGET THEN
+            INSERT (nit, cod_habilitacion, atencion_id, direccion, departamento, municipio, estado)
+            VALUES (s.nit, s.cod_habilitacion, s.id, s.direccion, s.departamento, s.municipio, s.estado);
+        """;
+
+    private static final String POR_NIT_SQL = RECALCULAR_SQL.formatted("au.nit_normalizado = ?");
+    private static final String POR_SEDE_SQL = RECALCULAR_SQL.formatted(
+            "au.nit_normalizado = ? AND au.cod_habilitacion_normalizado = LTRIM(RTRIM(?))");
+    private static final String POR_LOTE_SQL = RECALCULAR_SQL.formatted(
+            "au.nit_normalizado IN (SELECT value FROM STRING_SPLIT(?, ','))");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanoLote;
+    private final boolean backfillAlIniciar;
+
+    public AtencionEstadoService(JdbcTemplate jdbcTemplate,
+                                 @Value("${atencion.estado.backfill-batch-size:500}") int tamanoLote,
+                                 @Value("${atencion.estado.backfill-on-startup:false}") boolean backfillAlIniciar) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanoLote = tamanoLote;
+        this.backfillAlIniciar = backfillAlIniciar;
+    }
+
+    /**
+     * Recalcula todas las sedes del NIT; se llama dentro de la transacción de escritura.
+     */
+    public void recalcular(String nit) {
+        jdbcTemplate.update(POR_NIT_SQL, nit);
+    }
+
+    public void recalcular(String nit, String codHabilitacion) {
+        jdbcTemplate.update(POR_SEDE_SQL, nit, codHabilitacion);
+    }
+
+    /**
+     * Recalcula el estado de todas las sedes existentes, por lotes de NIT para no bloquear la tabla
+     * completa. Devuelve la cantidad de NIT procesados.
+     */
+    public int backfill() {
+        String ultimoNit = "";
+        int procesados = 0;
+        while (true) {
+            List<String> lote = jdbcTemplate.queryForList("""
+                    SELECT DISTINCT TOP (?) nit_normalizado
+                    FROM AtencionUsuarios
+                    WHERE nit_normalizado > ?
+                    ORDER BY nit_normalizado
+                    """, String.class, tamanoLote, ultimoNit);
+            if (lote.isEmpty()) {
+                break;
+            }
+            jdbcTemplate.update(POR_LOTE_SQL, String.join(",", lote));
+            procesados += lote.size();
+            ultimoNit = lote.get(lote.size() - 1);
+        }
+        log.info("Backfill de atencion_sede_estado terminado: {} NIT procesados", procesados);
+        return procesados;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAlIniciar() {
+        if (!backfillAlIniciar) {
+            return;
+        }
+        try {
+            backfill();
+        } catch (DataAccessException e) {
+            log.warn("No se pudo completar el backfill de atencion_sede_estado", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.fomag.convocatoria.service;
+
+import com.fomag.convocatoria.persistence.JdbcBatchWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Escritura en {@code dbo.AtencionUsuarios_historial}. {@code AtencionUsuarios} guarda solo la fila
+ * actual de cada sede; antes de reemplazarla, la versión anterior se copia aquí (solo inserción).
+ */
+@Service
+@RequiredArgsConstructor
+public class AtencionHistorialService {
+
+    static final String COLUMNAS = """
+        nit, cod_habilitacion, direccion, departamento, municipio, mecanismo_citas,
+        correo_autorizado, telefono_fijo, celular, horario_desde, horario_hasta,
+        whatsapp, horario_whatsapp_desde, horario_whatsapp_hasta, linea_telefonica,
+        horario_telefono_desde, horario_telefono_hasta, pagina_web, correo_no_presencial,
+        nombre_coordinador, telefono_coordinador, correo_coordinador,
+        nombre_gerente, correo_gerente, celular_gerente,
+        correo_administrativo, telefono_administrativo, celular_administrativo,
+        Ambulatorio, Hospitalario, Domiciliario, Transporte, Insumos,
+        Servicio_Exclusivo, Servicio_Agenda, Servicio_Franjas, fecha_registro""";
+
+    // UPDLOCK + HOLDLOCK: la fila queda bloqueada hasta el fin de la transacción que la reemplaza
+    private static final String ARCHIVAR_SQL = """
+        INSERT INTO dbo.AtencionUsuarios_historial (atencion_id, %1$s)
+        SELECT id, %1$s
+        FROM AtencionUsuarios WITH (UPDLOCK, HOLDLOCK)
+        WHERE nit_normalizado = ?
+          AND cod_habilitacion_normalizado = LTRIM(RTRIM(?))
+        """.formatted(COLUMNAS);
+
+    private static final String RETIRAR_SQL = """
+        DELETE FROM AtencionUsuarios
+        OUTPUT deleted.id, %s
+        INTO dbo.AtencionUsuarios_historial (atencion_id, %s)
+        WHERE nit_normalizado = ?
+          AND cod_habilitacion_normalizado = LTRIM(RTRIM(?))
+        """.formatted(COLUMNAS.replaceAll("(\\w+)", "deleted.$1"), COLUMNAS);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcBatchWriter batchWriter;
+
+    /**
+     * Copia la fila actual de la sede al historial; la fila sigue en {@code AtencionUsuarios}
+     * para que el llamador la actualice en la misma transacción.
+     */
+    public void archivar(String nit, String codHabilitacion) {
+        jdbcTemplate.update(ARCHIVAR_SQL, nit, codHabilitacion);
+    }
+
+    /**
+     * Mueve al historial la fila actual de cada sede {@code (nit, cod_habilitacion)}, dejando libre
+     * la clave para insertar la nueva.
+     */
+    public void retirar(List<Object[]> sedes) {
+        batchWriter.ejecutar(RETIRAR_SQL, sedes);
+    }
+}
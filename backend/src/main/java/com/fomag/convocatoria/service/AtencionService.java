@@ -3,8 +3,10 @@ package com.fomag.convocatoria.service;
 import com.fomag.convocatoria.api.dto.ActualizarAtencionRequest;
 import com.fomag.convocatoria.api.dto.AtencionSedeDto;
 import com.fomag.convocatoria.api.dto.AtencionSedeEstadoDto;
+import com.fomag.convocatoria.api.dto.AtencionSedeHistorialDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -13,13 +15,49 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class AtencionService {
 
+    private static final String UPSERT_SQL = """
+        MERGE AtencionUsuarios WITH (HOLDLOCK) AS t
+        USING (SELECT LTRIM(RTRIM(?)) AS nit, LTRIM(RTRIM(?)) AS cod_habilitacion) AS s
+           ON t.nit_normalizado = s.nit
+          AND t.cod_habilitacion_normalizado = s.cod_habilitacion
+        WHEN MATCHED %s THEN UPDATE SET
+         direccion=?, departamento=?, municipio=?, mecanismo_citas=?,
+         correo_autorizado=?, telefono_fijo=?, celular=?, horario_desde=?, horario_hasta=?,
+         whatsapp=?, horario_whatsapp_desde=?, horario_whatsapp_hasta=?, linea_telefonica=?,
+         horario_telefono_desde=?, horario_telefono_hasta=?, pagina_web=?, correo_no_presencial=?,
+         nombre_coordinador=?, telefono_coordinador=?, correo_coordinador=?,
+         nombre_gerente=?, correo_gerente=?, celular_gerente=?,
+         correo_administrativo=?, telefono_administrativo=?, celular_administrativo=?,
+         Ambulatorio=?, Hospitalario=?, Domiciliario=?, Transporte=?, Insumos=?,
+         Servicio_Exclusivo=?, Servicio_Agenda=?, Servicio_Franjas=?
+        WHEN NOT MATCHED BY TARGET THEN INSERT
+        (nit, cod_habilitacion, direccion, departamento, municipio, mecanismo_citas,
+         correo_autorizado, telefono_fijo, celular, horario_desde, horario_hasta,
+         whatsapp, horario_whatsapp_desde, horario_whatsapp_hasta, linea_telefonica,
+         horario_telefono_desde, horario_telefono_hasta, pagina_web, correo_no_presencial,
+         nombre_coordinador, telefono_coordinador, correo_coordinador,
+         nombre_gerente, correo_gerente, celular_gerente,
+         correo_administrativo, telefono_administrativo, celular_administrativo,
+         Ambulatorio, Hospitalario, Domiciliario, Transporte, Insumos,
+         Servicio_Exclusivo, Servicio_Agenda, Servicio_Franjas, fecha_registro)
+        VALUES (s.nit, s.cod_habilitacion,
+                ?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,GETDATE())
+        OUTPUT CAST(inserted.version AS BIGINT);
+        """;
+
     private final JdbcTemplate jdbcTemplate;
+    private final AtencionEstadoService atencionEstadoService;
+    private final AtencionHistorialService atencionHistorialService;
 
     @Transactional(readOnly = true)
     public List<AtencionSedeEstadoDto> listarSedes(String nit) {
@@ -31,60 +69,20 @@ public class AtencionService {
                     departamento_rp  = MAX(rp.departamento),
                     municipio_rp     = MAX(rp.municipio)
                 FROM dbo.registro_prestadores rp
-                WHERE LTRIM(RTRIM(rp.nit)) = LTRIM(RTRIM(?))
+                WHERE rp.nit_normalizado = ?
                   AND NULLIF(LTRIM(RTRIM(rp.cod_habilitacion)),'') IS NOT NULL
                 GROUP BY LTRIM(RTRIM(rp.cod_habilitacion))
             )
             SELECT
                 rp.cod_habilitacion,
-                direccion    = COALESCE(NULLIF(LTRIM(RTRIM(au.direccion)) ,''), rp.direccion_rp),
-                departamento = COALESCE(NULLIF(LTRIM(RTRIM(au.departamento)) ,''), rp.departamento_rp),
-                municipio    = COALESCE(NULLIF(LTRIM(RTRIM(au.municipio)) ,''), rp.municipio_rp),
-                estado = CASE
-                    WHEN au.id IS NULL THEN 'SEDE_NUEVA'
-                    WHEN (
-                        COALESCE(LTRIM(RTRIM(au.direccion)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.departamento)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.municipio)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.mecanismo_citas)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.correo_autorizado)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.telefono_fijo)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.celular)),'') = '' AND
-                        au.horario_desde IS NULL AND au.horario_hasta IS NULL AND
-                        COALESCE(LTRIM(RTRIM(au.whatsapp)),'') = '' AND
-                        au.horario_whatsapp_desde IS NULL AND au.horario_whatsapp_hasta IS NULL AND
-                        COALESCE(LTRIM(RTRIM(au.linea_telefonica)),'') = '' AND
-                        au.horario_telefono_desde IS NULL AND au.horario_telefono_hasta IS NULL AND
-                        COALESCE(LTRIM(RTRIM(au.pagina_web)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.correo_no_presencial)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.nombre_coordinador)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.telefono_coordinador)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.correo_coordinador)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.nombre_gerente)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.correo_gerente)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.celular_gerente)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.correo_administrativo)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.telefono_administrativo)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.celular_administrativo)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.Ambulatorio)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.Hospitalario)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.Domiciliario)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.Transporte)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.Insumos)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.Servicio_Exclusivo)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.Servicio_Agenda)),'') = '' AND
-                        COALESCE(LTRIM(RTRIM(au.Servicio_Franjas)),'') = ''
-                    ) THEN 'SIN_DILIGENCIAR'
-                    ELSE 'COMPLETA'
-                END
+                direccion    = COALESCE(e.direccion, rp.direccion_rp),
+                departamento = COALESCE(e.departamento, rp.departamento_rp),
+                municipio    = COALESCE(e.municipio, rp.municipio_rp),
+                estado       = COALESCE(e.estado, 'SEDE_NUEVA')
             FROM RP rp
-            OUTER APPLY (
-              SELECT TOP (1) *
-              FROM AtencionUsuarios au
-              WHERE LTRIM(RTRIM(au.nit)) = LTRIM(RTRIM(?))
-                AND LTRIM(RTRIM(au.cod_habilitacion)) = rp.cod_habilitacion
-              ORDER BY au.id DESC
-            ) au
+            LEFT JOIN dbo.atencion_sede_estado e
+              ON e.nit = ?
+             AND e.cod_habilitacion = rp.cod_habilitacion
             ORDER BY rp.cod_habilitacion
             """;
         return jdbcTemplate.query(sql, (rs, rowNum) -> AtencionSedeEstadoDto.builder()
@@ -99,67 +97,75 @@ public class AtencionService {
     @Transactional(readOnly = true)
     public AtencionSedeDto obtenerSede(String nit, String cod) {
         String sql = """
-            SELECT TOP 1 * FROM AtencionUsuarios
-            WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-              AND LTRIM(RTRIM(cod_habilitacion)) = LTRIM(RTRIM(?))
-            ORDER BY id DESC
+            SELECT *, CAST(version AS BIGINT) AS version_fila FROM AtencionUsuarios
+            WHERE nit_normalizado = ?
+              AND cod_habilitacion_normalizado = LTRIM(RTRIM(?))
             """;
-        return jdbcTemplate.query(sql, rs -> rs.next() ? mapSede(rs) : null, nit, cod);
+        return jdbcTemplate.query(sql, rs -> {
+            if (!rs.next()) return null;
+            AtencionSedeDto sede = mapSede(rs);
+            sede.setVersion(rs.getLong("version_fila"));
+            return sede;
+        }, nit, cod);
     }
 
-    @Transactional
-    public void guardar(ActualizarAtencionRequest request) {
-        // Si existe, tomamos id; si no, insertaremos
-        Integer id = jdbcTemplate.query("""
-            SELECT TOP 1 id FROM AtencionUsuarios
-             WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-               AND LTRIM(RTRIM(cod_habilitacion)) = LTRIM(RTRIM(?))
-             ORDER BY id DESC
-             """, rs -> rs.next() ? rs.getInt("id") : null, request.getNit(), request.getCodHabilitacion());
-
-        if (id == null) {
-            insertar(request);
-        } else {
-            actualizar(id, request);
-        }
-    }
-
-    private void insertar(ActualizarAtencionRequest r) {
+    @Transactional(readOnly = true)
+    public List<AtencionSedeHistorialDto> obtenerHistorial(String nit, String cod, int limite) {
         String sql = """
-            INSERT INTO AtencionUsuarios
-            (nit, cod_habilitacion, direccion, departamento, municipio, mecanismo_citas,
-             correo_autorizado, telefono_fijo, celular, horario_desde, horario_hasta,
-             whatsapp, horario_whatsapp_desde, horario_whatsapp_hasta, linea_telefonica,
-             horario_telefono_desde, horario_telefono_hasta, pagina_web, correo_no_presencial,
-             nombre_coordinador, telefono_coordinador, correo_coordinador,
-             nombre_gerente, correo_gerente, celular_gerente,
-             correo_administrativo, telefono_administrativo, celular_administrativo,
-             Ambulatorio, Hospitalario, Domiciliario, Transporte, Insumos,
-             Servicio_Exclusivo, Servicio_Agenda, Servicio_Franjas, fecha_registro)
-            VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,GETDATE())
+            SELECT TOP (?) * FROM dbo.AtencionUsuarios_historial
+            WHERE nit_normalizado = ?
+              AND cod_habilitacion_normalizado = LTRIM(RTRIM(?))
+            ORDER BY historial_id DESC
             """;
-        ejecutarUpsert(sql, null, r);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> AtencionSedeHistorialDto.builder()
+                .historialId(rs.getLong("historial_id"))
+                .atencionId(rs.getLong("atencion_id"))
+                .fechaRegistro(aFecha(rs.getTimestamp("fecha_registro")))
+                .archivadoEn(aFecha(rs.getTimestamp("archivado_en")))
+                .sede(mapSede(rs))
+                .build(), limite, nit, cod);
     }
 
-    private void actualizar(Integer id, ActualizarAtencionRequest r) {
-        String sql = """
-            UPDATE AtencionUsuarios SET
-             direccion=?, departamento=?, municipio=?, mecanismo_citas=?,
-             correo_autorizado=?, telefono_fijo=?, celular=?, horario_desde=?, horario_hasta=?,
-             whatsapp=?, horario_whatsapp_desde=?, horario_whatsapp_hasta=?, linea_telefonica=?,
-             horario_telefono_desde=?, horario_telefono_hasta=?, pagina_web=?, correo_no_presencial=?,
-             nombre_coordinador=?, telefono_coordinador=?, correo_coordinador=?,
-             nombre_gerente=?, correo_gerente=?, celular_gerente=?,
-             correo_administrativo=?, telefono_administrativo=?, celular_administrativo=?,
-             Ambulatorio=?, Hospitalario=?, Domiciliario=?, Transporte=?, Insumos=?,
-             Servicio_Exclusivo=?, Servicio_Agenda=?, Servicio_Franjas=?
-            WHERE id=?
-            """;
-        ejecutarUpsert(sql, id, r);
+    /**
+     * Upsert atómico sobre la fila de la sede (índice único UX_AtencionUsuarios_sede). La versión
+     * anterior queda en el historial; si la solicitud trae {@code version} y la fila cambió desde
+     * que se leyó, responde 409 y la transacción descarta también la copia al historial.
+     */
+    @Transactional
+    public void guardar(ActualizarAtencionRequest request) {
+        String sql = request.getVersion() == null
+                ? UPSERT_SQL.formatted("")
+                : UPSERT_SQL.formatted("AND CAST(t.version AS BIGINT) = ?");
+
+        List<Object> params = new ArrayList<>();
+        params.add(request.getNit());
+        params.add(request.getCodHabilitacion());
+        if (request.getVersion() != null) {
+            params.add(request.getVersion());
+        }
+        Object[] valores = valores(request);
+        params.addAll(Arrays.asList(valores));
+        params.addAll(Arrays.asList(valores));
+
+        Long version;
+        try {
+            atencionHistorialService.archivar(request.getNit(), request.getCodHabilitacion());
+            version = jdbcTemplate.query(sql, rs -> rs.next() ? rs.getLong(1) : null, params.toArray());
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "La sede fue modificada por otra sesión. Recargue los datos e intente de nuevo.", e);
+        } catch (DataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al guardar atención usuario", e);
+        }
+        if (version == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "La sede fue modificada por otra sesión. Recargue los datos e intente de nuevo.");
+        }
+        atencionEstadoService.recalcular(request.getNit(), request.getCodHabilitacion());
     }
 
-    private void ejecutarUpsert(String sql, Integer id, ActualizarAtencionRequest r) {
-        Object[] params = new Object[]{
+    private Object[] valores(ActualizarAtencionRequest r) {
+        return new Object[]{
                 r.getDireccion(), r.getDepartamento(), r.getMunicipio(), r.getMecanismoCitas(),
                 r.getCorreoAutorizado(), r.getTelefonoFijo(), r.getCelular(), r.getHorarioDesde(), r.getHorarioHasta(),
                 r.getWhatsapp(), r.getHorarioWhatsappDesde(), r.getHorarioWhatsappHasta(), r.getLineaTelefonica(),
@@ -176,25 +182,6 @@ public class AtencionService {
                 r.isServicioAgenda() ? "Sí" : "No",
                 r.isServicioFranjas() ? "Sí" : "No"
         };
-        try {
-            if (id == null) {
-                Object[] full = new Object[]{
-                        r.getNit(), r.getCodHabilitacion(),
-                };
-                // combine
-                Object[] finalParams = new Object[full.length + params.length];
-                System.arraycopy(full, 0, finalParams, 0, full.length);
-                System.arraycopy(params, 0, finalParams, full.length, params.length);
-                jdbcTemplate.update(sql, finalParams);
-            } else {
-                Object[] finalParams = new Object[params.length + 1];
-                System.arraycopy(params, 0, finalParams, 0, params.length);
-                finalParams[params.length] = id;
-                jdbcTemplate.update(sql, finalParams);
-            }
-        } catch (DataAccessException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al guardar atención usuario", e);
-        }
     }
 
     private AtencionSedeDto mapSede(ResultSet rs) throws SQLException {
@@ -241,6 +228,10 @@ public class AtencionService {
         return val != null && val.trim().equalsIgnoreCase("sí") || val.trim().equalsIgnoreCase("si") || val.trim().equalsIgnoreCase("1");
     }
 
+    private LocalDateTime aFecha(Timestamp valor) {
+        return valor == null ? null : valor.toLocalDateTime();
+    }
+
     private String toHora(String valor) {
         if (valor == null) return null;
         if (valor.length() >= 5) return valor.substring(0, 5);
@@ -1,21 +1,28 @@
 package com.fomag.convocatoria.service;
 
 import com.fomag.convocatoria.api.dto.AtencionUsuariosRequest;
+import com.fomag.convocatoria.persistence.JdbcBatchWriter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class AtencionUsuariosService {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final JdbcBatchWriter batchWriter;
+    private final AtencionEstadoService atencionEstadoService;
+    private final AtencionHistorialService atencionHistorialService;
 
     private static final String INSERT_SQL = """
         INSERT INTO AtencionUsuarios (
@@ -36,15 +43,30 @@ public class AtencionUsuariosService {
 
     @Transactional
     public void registrar(AtencionUsuariosRequest request) {
-        List<AtencionUsuariosRequest.SedeRequest> sedes = request.getSedes();
+        // Si una sede llega repetida en la misma solicitud, se conserva la última
+        Map<String, AtencionUsuariosRequest.SedeRequest> sedes = new LinkedHashMap<>();
+        for (AtencionUsuariosRequest.SedeRequest sede : request.getSedes()) {
+            String cod = sede.getCodHabilitacion() == null ? "" : sede.getCodHabilitacion().trim();
+            sedes.remove(cod);
+            sedes.put(cod, sede);
+        }
 
-        for (AtencionUsuariosRequest.SedeRequest sede : sedes) {
-            Object[] params = buildParams(request.getNit(), sede);
-            try {
-                jdbcTemplate.update(INSERT_SQL, params);
-            } catch (DataAccessException e) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al guardar la informacion de atencion a usuarios", e);
-            }
+        List<Object[]> retiros = new ArrayList<>();
+        List<Object[]> filas = new ArrayList<>();
+        for (AtencionUsuariosRequest.SedeRequest sede : sedes.values()) {
+            retiros.add(new Object[]{request.getNit(), sede.getCodHabilitacion()});
+            filas.add(buildParams(request.getNit(), sede));
+        }
+        try {
+            atencionHistorialService.retirar(retiros);
+            batchWriter.ejecutar(INSERT_SQL, filas);
+            atencionEstadoService.recalcular(request.getNit());
+        } catch (DuplicateKeyException | ConcurrencyFailureException e) {
+            // Otra solicitud registró la misma sede entre el retiro y la inserción (UX_AtencionUsuarios_sede)
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "La sede fue registrada por otra sesión al mismo tiempo. Recargue los datos e intente de nuevo.", e);
+        } catch (DataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al guardar la informacion de atencion a usuarios", e);
         }
     }
 
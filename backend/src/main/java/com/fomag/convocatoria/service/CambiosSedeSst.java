@@ -0,0 +1,54 @@
+package com.fomag.convocatoria.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Diferencia entre una sede SST guardada y la edición solicitada: servicios a retirar, servicios
+ * nuevos y si cambia la ubicación. Los servicios se comparan sin distinguir mayúsculas ni espacios
+ * externos; se conserva el texto guardado para retirar y el solicitado para insertar.
+ */
+record CambiosSedeSst(List<String> eliminar, List<String> nuevos, boolean cambiaUbicacion) {
+
+    record Ubicacion(String departamento, String municipio, String codigoPostal) {}
+
+    static CambiosSedeSst calcular(List<String> serviciosActuales, Ubicacion ubicacionActual,
+                                   List<String> serviciosSolicitados, Ubicacion ubicacionSolicitada) {
+        Map<String, String> existentes = normalizarServicios(serviciosActuales);
+        Map<String, String> solicitados = normalizarServicios(serviciosSolicitados);
+
+        List<String> eliminar = new ArrayList<>();
+        existentes.forEach((clave, servicio) -> {
+            if (!solicitados.containsKey(clave)) {
+                eliminar.add(servicio);
+            }
+        });
+        List<String> nuevos = new ArrayList<>();
+        solicitados.forEach((clave, servicio) -> {
+            if (!existentes.containsKey(clave)) {
+                nuevos.add(servicio);
+            }
+        });
+        return new CambiosSedeSst(List.copyOf(eliminar), List.copyOf(nuevos),
+                !ubicacionActual.equals(ubicacionSolicitada));
+    }
+
+    boolean sinCambios() {
+        return eliminar.isEmpty() && nuevos.isEmpty() && !cambiaUbicacion;
+    }
+
+    /** Servicios sin vacíos ni repetidos, indexados por su forma en mayúsculas. */
+    static Map<String, String> normalizarServicios(List<String> servicios) {
+        Map<String, String> resultado = new LinkedHashMap<>();
+        for (String servicio : servicios) {
+            String limpio = servicio == null ? "" : servicio.trim();
+            if (!limpio.isEmpty()) {
+                resultado.putIfAbsent(limpio.toUpperCase(Locale.ROOT), limpio);
+            }
+        }
+        return resultado;
+    }
+}
@@ -1,30 +1,108 @@
 package com.fomag.convocatoria.service;
 
 import com.fomag.convocatoria.api.dto.DepartamentoDto;
+import com.fomag.convocatoria.api.dto.DepartamentoGeografiaDto;
 import com.fomag.convocatoria.api.dto.MunicipioDto;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Departamentos y municipios son catálogos prácticamente estáticos: se cargan una vez en una
+ * estructura inmutable (departamento → municipios) y se sirven desde memoria. La versión
+ * ({@link Catalogo#version()}) sirve como ETag y cambia solo si cambia el contenido.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CatalogosService {
 
     private final JdbcTemplate jdbcTemplate;
 
+    private volatile Catalogo catalogo;
+
     public List<DepartamentoDto> obtenerDepartamentos() {
-        String sql = "SELECT id_departamento, departamento FROM departamentos ORDER BY departamento";
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                new DepartamentoDto(rs.getString("id_departamento"), rs.getString("departamento"))
-        );
+        return catalogo().departamentos();
     }
 
     public List<MunicipioDto> obtenerMunicipiosPorDepartamento(String departamentoId) {
-        String sql = "SELECT id_municipio, municipio FROM municipios WHERE departamento_id = ? ORDER BY municipio";
-        return jdbcTemplate.query(sql, ps -> ps.setString(1, departamentoId), (rs, rowNum) ->
-                new MunicipioDto(rs.getString("id_municipio"), rs.getString("municipio"))
-        );
+        return catalogo().municipiosPorDepartamento().getOrDefault(departamentoId, List.of());
+    }
+
+    public List<DepartamentoGeografiaDto> obtenerGeografia() {
+        return catalogo().geografia();
+    }
+
+    public String version() {
+        return catalogo().version();
     }
+
+    @Scheduled(initialDelayString = "${catalogos.refresh-ms:3600000}", fixedDelayString = "${catalogos.refresh-ms:3600000}")
+    public void refrescar() {
+        try {
+            recargar();
+        } catch (DataAccessException e) {
+            log.warn("No se pudo refrescar el catálogo geográfico; se mantiene la versión en memoria", e);
+        }
+    }
+
+    public synchronized String recargar() {
+        List<DepartamentoDto> departamentos = jdbcTemplate.query(
+                "SELECT id_departamento, departamento FROM departamentos ORDER BY departamento",
+                (rs, rowNum) -> new DepartamentoDto(rs.getString("id_departamento"), rs.getString("departamento")));
+
+        Map<String, List<MunicipioDto>> municipios = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id_municipio, municipio, departamento_id FROM municipios ORDER BY municipio", rs -> {
+            municipios.computeIfAbsent(rs.getString("departamento_id"), k -> new ArrayList<>())
+                    .add(new MunicipioDto(rs.getString("id_municipio"), rs.getString("municipio")));
+        });
+
+        Map<String, List<MunicipioDto>> indice = new LinkedHashMap<>();
+        municipios.forEach((depto, lista) -> indice.put(depto, List.copyOf(lista)));
+
+        List<DepartamentoGeografiaDto> geografia = departamentos.stream()
+                .map(d -> new DepartamentoGeografiaDto(d.getId(), d.getNombre(), indice.getOrDefault(d.getId(), List.of())))
+                .toList();
+
+        StringBuilder contenido = new StringBuilder();
+        for (DepartamentoGeografiaDto d : geografia) {
+            contenido.append(d.getId()).append('|').append(d.getNombre()).append('\n');
+            for (MunicipioDto m : d.getMunicipios()) {
+                contenido.append(' ').append(m.getId()).append('|').append(m.getNombre()).append('\n');
+            }
+        }
+        String version = DigestUtils.md5DigestAsHex(contenido.toString().getBytes(StandardCharsets.UTF_8));
+
+        catalogo = new Catalogo(List.copyOf(departamentos), Map.copyOf(indice), geografia, version);
+        log.info("Catálogo geográfico cargado: {} departamentos, versión {}", departamentos.size(), version);
+        return version;
+    }
+
+    private Catalogo catalogo() {
+        Catalogo actual = catalogo;
+        if (actual == null) {
+            synchronized (this) {
+                if (catalogo == null) {
+                    recargar();
+                }
+                actual = catalogo;
+            }
+        }
+        return actual;
+    }
+
+    private record Catalogo(List<DepartamentoDto> departamentos,
+                            Map<String, List<MunicipioDto>> municipiosPorDepartamento,
+                            List<DepartamentoGeografiaDto> geografia,
+                            String version) {}
 }
@@ -0,0 +1,139 @@
+package com.fomag.convocatoria.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Respuestas distractoras para las preguntas de recuperación de clave. Un recorrido secuencial de
+ * {@code registro_prestadores} llena, por columna, una muestra uniforme (reservoir sampling) que se
+ * conserva en memoria; las solicitudes toman distractores al azar sin consultar la base de datos.
+ * La muestra se carga al terminar el arranque y luego periódicamente; si una recarga falla se
+ * conserva la anterior, y mientras no haya ninguna las solicitudes reciben una lista vacía.
+ */
+@Slf4j
+@Service
+public class DistractoresService {
+
+    public static final String REPRESENTANTE = "representante_legal";
+    public static final String CORREO = "correo_representante";
+    public static final String CELULAR = "celular_representante";
+
+    private static final List<String> COLUMNAS = List.of(REPRESENTANTE, CORREO, CELULAR);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanoMuestra;
+
+    private volatile Map<String, List<String>> muestras = Map.of();
+
+    public DistractoresService(JdbcTemplate jdbcTemplate,
+                               @Value("${acceso.distractores.sample-size:500}") int tamanoMuestra) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanoMuestra = tamanoMuestra;
+    }
+
+    /**
+     * Hasta {@code cantidad} valores distintos de {@code columna}, todos diferentes de {@code excluir}.
+     */
+    public List<String> obtener(String columna, String excluir, int cantidad) {
+        List<String> muestra = muestras.getOrDefault(columna, List.of());
+        if (muestra.isEmpty()) {
+            return List.of();
+        }
+        Set<String> elegidos = new LinkedHashSet<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int intento = 0; intento < cantidad * 3 && elegidos.size() < cantidad; intento++) {
+            String valor = muestra.get(random.nextInt(muestra.size()));
+            if (!valor.equalsIgnoreCase(excluir)) {
+                elegidos.add(valor);
+            }
+        }
+        return List.copyOf(elegidos);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        refrescar();
+    }
+
+    @Scheduled(initialDelayString = "${acceso.distractores.refresh-ms:3600000}",
+            fixedDelayString = "${acceso.distractores.refresh-ms:3600000}")
+    public void refrescar() {
+        try {
+            recargar();
+        } catch (DataAccessException e) {
+            log.warn("No se pudo refrescar la muestra de distractores; se mantiene la anterior", e);
+        }
+    }
+
+    public synchronized void recargar() {
+        List<Reservorio> reservorios = COLUMNAS.stream().map(c -> new Reservorio(tamanoMuestra)).toList();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT " + String.join(", ", COLUMNAS) + " FROM dbo.registro_prestadores",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(1000);
+            return ps;
+        }, rs -> {
+            for (int i = 0; i < COLUMNAS.size(); i++) {
+                String valor = rs.getString(i + 1);
+                if (valor != null && !valor.isBlank()) {
+                    reservorios.get(i).ofrecer(valor.trim());
+                }
+            }
+        });
+
+        Map<String, List<String>> nuevas = new HashMap<>();
+        for (int i = 0; i < COLUMNAS.size(); i++) {
+            nuevas.put(COLUMNAS.get(i), reservorios.get(i).valoresDistintos());
+        }
+        muestras = Map.copyOf(nuevas);
+        log.info("Muestra de distractores cargada: {}", nuevas.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue().size()).toList());
+    }
+
+    /**
+     * Algoritmo R: tras ver n valores, cada uno está en la muestra con probabilidad k/n.
+     */
+    private static final class Reservorio {
+        private final List<String> valores;
+        private final int capacidad;
+        private long vistos;
+
+        Reservorio(int capacidad) {
+            this.capacidad = capacidad;
+            this.valores = new ArrayList<>(capacidad);
+        }
+
+        void ofrecer(String valor) {
+            vistos++;
+            if (valores.size() < capacidad) {
+                valores.add(valor);
+                return;
+            }
+            long j = ThreadLocalRandom.current().nextLong(vistos);
+            if (j < capacidad) {
+                valores.set((int) j, valor);
+            }
+        }
+
+        List<String> valoresDistintos() {
+            return List.copyOf(new LinkedHashSet<>(valores));
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.fomag.convocatoria.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantiene el rollup {@code pagos_resumen_mensual} a partir de {@code radicacion_filtrada}.
+ * Cada ciclo recalcula completos los meses (nit, año, mes) con radicaciones o pagos desde el
+ * inicio del día de la marca de agua guardada en {@code pagos_resumen_control} ({@code >=}, para no
+ * perder filas cargadas después con la misma fecha). Ambas ramas hacen seek sobre los índices de
+ * {@code fecha_radicacion} y {@code feccha_pago} (db/pagos V3). Las correcciones y borrados en días
+ * anteriores los recoge la reconstrucción nocturna, que recalcula desde el inicio de mes de la marca
+ * menos {@code pagos.resumen.reconstruccion-meses}, incluidos los meses ya presentes en el rollup.
+ */
+@Slf4j
+@Service
+public class PagosResumenMensualService {
+
+    private static final LocalDateTime MARCA_INICIAL = LocalDateTime.of(1900, 1, 1, 0, 0);
+
+    private static final String REFRESCO_SQL = """
+        DECLARE @afectados TABLE (nit VARCHAR(20) NOT NULL, anio INT NOT NULL, mes INT NOT NULL, PRIMARY KEY (nit, anio, mes));
+
+        INSERT INTO @afectados (nit, anio, mes)
+        SELECT rf.nit_normalizado, YEAR(rf.fecha_radicacion), MONTH(rf.fecha_radicacion)
+        FROM [fomagf].[dbo].[radicacion_filtrada] rf
+        WHERE rf.fecha_radicacion >= ?
+          AND rf.fecha_radicacion <= ?
+          AND rf.nit_normalizado IS NOT NULL
+        UNION
+        SELECT rf.nit_normalizado, YEAR(rf.fecha_radicacion), MONTH(rf.fecha_radicacion)
+        FROM [fomagf].[dbo].[radicacion_filtrada] rf
+        WHERE rf.feccha_pago >= ?
+          AND rf.fecha_radicacion <= ?
+          AND rf.nit_normalizado IS NOT NULL%s;
+
+        DELETE r
+        FROM [fomagf].[dbo].[pagos_resumen_mensual] r
+        INNER JOIN @afectados a ON a.nit = r.nit AND a.anio = r.anio AND a.mes = r.mes;
+
+        INSERT INTO [fomagf].[dbo].[pagos_resumen_mensual]
+            (nit, anio, mes, prefijo, nom_prestador, total_facturado, total_pagado, n_facturas)
+        SELECT
+            a.nit,
+            a.anio,
+            a.mes,
+            ISNULL(rf.prefijo_factura, ''),
+            MIN(LTRIM(RTRIM(rf.nom_prestador))),
+            SUM(ISNULL(rf.valor_factura, 0)),
+            SUM(ISNULL(rf.valor_pagado, 0)),
+            COUNT(*)
+        FROM @afectados a
+        INNER JOIN [fomagf].[dbo].[radicacion_filtrada] rf
+            ON rf.nit_normalizado = a.nit
+           AND rf.fecha_radicacion >= DATEFROMPARTS(a.anio, a.mes, 1)
+           AND rf.fecha_radicacion <  DATEADD(MONTH, 1, DATEFROMPARTS(a.anio, a.mes, 1))
+           AND rf.fecha_radicacion <= ?
+        GROUP BY a.nit, a.anio, a.mes, ISNULL(rf.prefijo_factura, '');
+
+        UPDATE [fomagf].[dbo].[pagos_resumen_control]
+           SET ultima_fecha_radicacion = ?,
+               ultima_fecha_pago = ?,
+               actualizado_en = SYSDATETIME()
+         WHERE id = 1;
+        """;
+
+    // Solo en la reconstrucción: meses del rollup en la ventana, para vaciar los que ya no tienen filas
+    private static final String MESES_ROLLUP_SQL = """
+
+        UNION
+        SELECT r.nit, r.anio, r.mes
+        FROM [fomagf].[dbo].[pagos_resumen_mensual] r
+        WHERE r.anio > ?
+           OR (r.anio = ? AND r.mes >= ?)""";
+
+    private final JdbcTemplate mantenimientoJdbcTemplate;
+    private final JdbcTemplate pagosJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final int reconstruccionMeses;
+
+    private volatile LocalDateTime marcaRadicacion;
+    private volatile Instant ultimoRefresco;
+
+    public PagosResumenMensualService(@Qualifier("pagosMantenimientoJdbcTemplate") JdbcTemplate mantenimientoJdbcTemplate,
+                                      @Qualifier("pagosMantenimientoTransactionManager") PlatformTransactionManager pagosTransactionManager,
+                                      @Qualifier("pagosJdbcTemplate") JdbcTemplate pagosJdbcTemplate,
+                                      @Value("${pagos.resumen.enabled:true}") boolean habilitado,
+                                      @Value("${pagos.resumen.reconstruccion-meses:24}") int reconstruccionMeses,
+                                      MeterRegistry meterRegistry) {
+        this.mantenimientoJdbcTemplate = mantenimientoJdbcTemplate;
+        this.pagosJdbcTemplate = pagosJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(pagosTransactionManager);
+        this.habilitado = habilitado;
+        this.reconstruccionMeses = reconstruccionMeses;
+        Gauge.builder("pagos.resumen.lag", this, PagosResumenMensualService::segundosDesdeUltimoRefresco)
+                .description("Segundos desde el último refresco exitoso del rollup pagos_resumen_mensual")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("pagos.resumen.watermark.age", this, PagosResumenMensualService::segundosDesdeMarca)
+                .description("Antigüedad de la marca de agua de fecha_radicacion cubierta por el rollup")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${pagos.resumen.initial-delay-ms:30000}",
+            fixedDelayString = "${pagos.resumen.refresh-ms:300000}")
+    public void refrescar() {
+        refrescar(false);
+    }
+
+    /**
+     * Recalcula una ventana amplia para recoger correcciones y borrados en días que el ciclo
+     * normal ya no revisa.
+     */
+    @Scheduled(cron = "${pagos.resumen.reconstruccion-cron:0 30 2 * * *}")
+    public void reconstruir() {
+        refrescar(true);
+    }
+
+    private void refrescar(boolean reconstruccion) {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            LocalDateTime marca = transactionTemplate.execute(status -> aplicarRefresco(reconstruccion));
+            marcaRadicacion = marca;
+            ultimoRefresco = Instant.now();
+            log.info("Rollup pagos_resumen_mensual actualizado hasta fecha_radicacion={} (reconstruccion={})",
+                    marca, reconstruccion);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo refrescar pagos_resumen_mensual; se seguirá consultando radicacion_filtrada", e);
+        }
+    }
+
+    private LocalDateTime aplicarRefresco(boolean reconstruccion) {
+        var actual = mantenimientoJdbcTemplate.queryForMap("""
+            SELECT ultima_fecha_radicacion, ultima_fecha_pago
+            FROM [fomagf].[dbo].[pagos_resumen_control] WITH (UPDLOCK)
+            WHERE id = 1
+            """);
+        var nueva = mantenimientoJdbcTemplate.queryForMap("""
+            SELECT MAX(fecha_radicacion) AS max_radicacion, MAX(feccha_pago) AS max_pago
+            FROM [fomagf].[dbo].[radicacion_filtrada]
+            """);
+
+        LocalDate ventanaRadicacion = inicioVentana(aFecha(actual.get("ultima_fecha_radicacion")), reconstruccion);
+        LocalDate ventanaPago = inicioVentana(aFecha(actual.get("ultima_fecha_pago")), reconstruccion);
+        Timestamp hastaRadicacion = Timestamp.valueOf(aFecha(nueva.get("max_radicacion")));
+        Timestamp hastaPago = Timestamp.valueOf(aFecha(nueva.get("max_pago")));
+
+        List<Object> params = new ArrayList<>(List.of(
+                Date.valueOf(ventanaRadicacion), hastaRadicacion,
+                Date.valueOf(ventanaPago), hastaRadicacion));
+        if (reconstruccion) {
+            params.add(ventanaRadicacion.getYear());
+            params.add(ventanaRadicacion.getYear());
+            params.add(ventanaRadicacion.getMonthValue());
+        }
+        params.add(hastaRadicacion);
+        params.add(hastaRadicacion);
+        params.add(hastaPago);
+
+        mantenimientoJdbcTemplate.update(REFRESCO_SQL.formatted(reconstruccion ? MESES_ROLLUP_SQL : ""),
+                params.toArray());
+        return hastaRadicacion.toLocalDateTime();
+    }
+
+    /**
+     * Ciclo normal: inicio del día de la marca, para recalcular los meses de las filas cargadas
+     * después con esa misma fecha. Reconstrucción: inicio de mes menos la ventana configurada.
+     */
+    private LocalDate inicioVentana(LocalDateTime marca, boolean reconstruccion) {
+        return reconstruccion
+                ? marca.toLocalDate().withDayOfMonth(1).minusMonths(reconstruccionMeses)
+                : marca.toLocalDate();
+    }
+
+    /**
+     * Indica si el rollup contiene todas las radicaciones anteriores a {@code fechaFinExclusiva}.
+     * Lee la marca persistida en {@code pagos_resumen_control} con la conexión de consulta: dentro
+     * de la transacción del llamador ve el mismo estado que la lectura del rollup que sigue, y no
+     * depende de que esta instancia haya ejecutado el refresco.
+     */
+    public boolean cubre(LocalDate fechaFinExclusiva) {
+        if (!habilitado) {
+            return false;
+        }
+        LocalDateTime marca = pagosJdbcTemplate.query("""
+            SELECT ultima_fecha_radicacion
+            FROM [fomagf].[dbo].[pagos_resumen_control]
+            WHERE id = 1
+            """, rs -> rs.next() ? aFecha(rs.getObject(1)) : MARCA_INICIAL);
+        return marca != null && !fechaFinExclusiva.atStartOfDay().isAfter(marca);
+    }
+
+    private double segundosDesdeUltimoRefresco() {
+        Instant ultimo = ultimoRefresco;
+        return ultimo == null ? Double.NaN : Duration.between(ultimo, Instant.now()).toSeconds();
+    }
+
+    private double segundosDesdeMarca() {
+        LocalDateTime marca = marcaRadicacion;
+        return marca == null ? Double.NaN : Duration.between(marca, LocalDateTime.now()).toSeconds();
+    }
+
+    private LocalDateTime aFecha(Object valor) {
+        if (valor instanceof Timestamp ts) return ts.toLocalDateTime();
+        if (valor instanceof LocalDateTime ldt) return ldt;
+        if (valor instanceof java.util.Date d) return new Timestamp(d.getTime()).toLocalDateTime();
+        return MARCA_INICIAL;
+    }
+}
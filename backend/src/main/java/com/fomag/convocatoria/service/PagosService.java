@@ -5,15 +5,31 @@ import com.fomag.convocatoria.api.dto.PagoRadicacionItem;
 import com.fomag.convocatoria.api.dto.PagoRadicacionPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,9 +39,23 @@ public class PagosService {
 
     @Qualifier("pagosJdbcTemplate")
     private final JdbcTemplate pagosJdbcTemplate;
+    private final PagosResumenMensualService resumenMensual;
+    private final PagosTotalesCache totalesCache;
+
+    @Value("${pagos.radicaciones.page-size:1000}")
+    private int tamanoPagina;
+
+    @Value("${pagos.radicaciones.max-page-size:5000}")
+    private int tamanoPaginaMaximo;
+
+    @Value("${pagos.radicaciones.export-fetch-size:2000}")
+    private int exportFetchSize;
 
     @Transactional(readOnly = true, transactionManager = "pagosTransactionManager")
     public Optional<PagoResumenResponse> consultarPorNitYPeriodo(String nit, YearMonth periodo) {
+        if (resumenMensual.cubre(periodo.plusMonths(1).atDay(1))) {
+            return consultarResumenMensual(nit, periodo, periodo).stream().findFirst();
+        }
         String sql = """
             SELECT
                 nit,
@@ -33,16 +63,16 @@ public class PagosService {
                 SUM(ISNULL(valor_pagado, 0)) AS total_valor_pagado
             FROM [fomagf].[dbo].[radicacion_filtrada]
             WHERE
-                LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-                AND YEAR(fecha_radicacion) = ?
-                AND MONTH(fecha_radicacion) = ?
+                nit_normalizado = ?
+                AND fecha_radicacion >= ?
+                AND fecha_radicacion <  ?
             GROUP BY nit
             """;
 
         return pagosJdbcTemplate.query(sql, ps -> {
             ps.setString(1, nit);
-            ps.setInt(2, periodo.getYear());
-            ps.setInt(3, periodo.getMonthValue());
+            ps.setDate(2, Date.valueOf(periodo.atDay(1)));
+            ps.setDate(3, Date.valueOf(periodo.plusMonths(1).atDay(1)));
         }, rs -> {
             if (rs.next()) {
                 BigDecimal total = rs.getBigDecimal("total_valor_pagado");
@@ -58,50 +88,215 @@ public class PagosService {
         });
     }
 
+    /**
+     * Resumen de pagos por mes entre {@code desde} y {@code hasta} (ambos inclusive) en una sola
+     * consulta agrupada. Solo se devuelven los meses con radicaciones.
+     */
+    @Transactional(readOnly = true, transactionManager = "pagosTransactionManager")
+    public List<PagoResumenResponse> consultarPorNitYRango(String nit, YearMonth desde, YearMonth hasta) {
+        if (resumenMensual.cubre(hasta.plusMonths(1).atDay(1))) {
+            return consultarResumenMensual(nit, desde, hasta);
+        }
+        String sql = """
+            SELECT
+                YEAR(fecha_radicacion) AS anio,
+                MONTH(fecha_radicacion) AS mes,
+                MIN(LTRIM(RTRIM(nom_prestador))) AS nom_prestador,
+                SUM(ISNULL(valor_pagado, 0)) AS total_valor_pagado
+            FROM [fomagf].[dbo].[radicacion_filtrada]
+            WHERE
+                nit_normalizado = ?
+                AND fecha_radicacion >= ?
+                AND fecha_radicacion <  ?
+            GROUP BY YEAR(fecha_radicacion), MONTH(fecha_radicacion)
+            ORDER BY anio, mes
+            """;
+
+        return pagosJdbcTemplate.query(sql, ps -> {
+            ps.setString(1, nit);
+            ps.setDate(2, Date.valueOf(desde.atDay(1)));
+            ps.setDate(3, Date.valueOf(hasta.plusMonths(1).atDay(1)));
+        }, (rs, rowNum) -> PagoResumenResponse.builder()
+                .nit(nit)
+                .nomPrestador(rs.getString("nom_prestador"))
+                .anio(rs.getInt("anio"))
+                .mes(rs.getInt("mes"))
+                .totalValorPagado(rs.getBigDecimal("total_valor_pagado"))
+                .build());
+    }
+
+    private List<PagoResumenResponse> consultarResumenMensual(String nit, YearMonth desde, YearMonth hasta) {
+        String sql = """
+            SELECT
+                anio,
+                mes,
+                MIN(nom_prestador) AS nom_prestador,
+                SUM(total_pagado) AS total_valor_pagado
+            FROM [fomagf].[dbo].[pagos_resumen_mensual]
+            WHERE
+                nit = ?
+                AND anio * 100 + mes BETWEEN ? AND ?
+            GROUP BY anio, mes
+            ORDER BY anio, mes
+            """;
+        return pagosJdbcTemplate.query(sql, (rs, rowNum) -> PagoResumenResponse.builder()
+                .nit(nit)
+                .nomPrestador(rs.getString("nom_prestador"))
+                .anio(rs.getInt("anio"))
+                .mes(rs.getInt("mes"))
+                .totalValorPagado(rs.getBigDecimal("total_valor_pagado"))
+                .build(), nit, claveMes(desde), claveMes(hasta));
+    }
+
+    private int claveMes(YearMonth mes) {
+        return mes.getYear() * 100 + mes.getMonthValue();
+    }
+
     @Transactional(readOnly = true, transactionManager = "pagosTransactionManager")
     public PagoRadicacionPage consultarRadicaciones(String nit,
                                                     LocalDate fechaInicio,
                                                     LocalDate fechaFinExclusiva,
                                                     String prefijo,
-                                                    int page) {
-        int size = 1000;
+                                                    int page,
+                                                    Integer tamano,
+                                                    String cursor) {
+        int size = resolverTamanoPagina(tamano);
         int limit = size + 1; // para detectar si hay siguiente página
-        // Totales
-        StringBuilder sqlTotales = new StringBuilder("""
-            SELECT
-                COUNT(DISTINCT rf.prefijo_factura) AS total_rows,
-                SUM(ISNULL(rf.valor_factura, 0)) AS total_facturado,
-                SUM(ISNULL(rf.valor_pagado, 0)) AS total_pagado
-            FROM [fomagf].[dbo].[radicacion_filtrada] rf
-            WHERE
-                LTRIM(RTRIM(rf.nit)) = LTRIM(RTRIM(?))
-                AND rf.fecha_radicacion >= ?
-                AND rf.fecha_radicacion <  ?
+        RadicacionCursor desde = cursor != null && !cursor.isBlank() ? RadicacionCursor.decodificar(cursor) : null;
+        // Totales: se calculan una vez por filtro y se reutilizan mientras el usuario pagina
+        FiltroRadicacion filtro = new FiltroRadicacion(nit, fechaInicio, fechaFinExclusiva,
+                prefijo != null && !prefijo.isBlank() ? prefijo.trim() : null);
+        TotalesRadicacion totales = totalesCache.vigentes(filtro);
+        boolean totalesDesdeCache = totales != null;
+        if (!totalesDesdeCache) {
+            totales = totalesCache.obtener(filtro, this::consultarTotales);
+        }
+
+        StringBuilder sql = new StringBuilder("""
+            WITH grupos AS (
+                SELECT
+                    rf.nit,
+                    rf.prefijo_factura,
+                    MIN(rf.fecha_radicacion) AS fecha_radicacion,
+                    SUM(ISNULL(rf.valor_factura, 0)) AS valor_facturado,
+                    SUM(ISNULL(rf.valor_pagado, 0)) AS valor_pagado,
+                    MAX(rf.feccha_pago) AS feccha_pago
+                FROM [fomagf].[dbo].[radicacion_filtrada] rf
+                WHERE
+                    rf.nit_normalizado = ?
+                    AND rf.fecha_radicacion >= ?
+                    AND rf.fecha_radicacion <  ?
             """);
 
-        List<Object> paramsTot = new ArrayList<>();
-        paramsTot.add(nit);
-        paramsTot.add(Date.valueOf(fechaInicio));
-        paramsTot.add(Date.valueOf(fechaFinExclusiva));
+        List<Object> params = new ArrayList<>();
+        params.add(nit);
+        params.add(Date.valueOf(fechaInicio));
+        params.add(Date.valueOf(fechaFinExclusiva));
 
         if (prefijo != null && !prefijo.isBlank()) {
-            sqlTotales.append(" AND rf.prefijo_factura LIKE ? ");
-            paramsTot.add(prefijo.trim() + "%");
+            sql.append(" AND rf.prefijo_factura LIKE ? ");
+            params.add(prefijo.trim() + "%");
         }
 
-        var totales = pagosJdbcTemplate.queryForObject(sqlTotales.toString(), paramsTot.toArray(), (rs, rowNum) -> {
-            var fact = rs.getBigDecimal("total_facturado");
-            var pag = rs.getBigDecimal("total_pagado");
-            java.math.BigDecimal pendiente = fact != null && pag != null ? fact.subtract(pag) : java.math.BigDecimal.ZERO;
-            if (pendiente.compareTo(java.math.BigDecimal.ZERO) < 0) pendiente = java.math.BigDecimal.ZERO;
-            return new Object[] {
-                rs.getLong("total_rows"),
-                fact == null ? java.math.BigDecimal.ZERO : fact,
-                pag == null ? java.math.BigDecimal.ZERO : pag,
-                pendiente
-            };
-        });
+        // Modo keyset: solo pueden seguir al cursor los prefijos con alguna radicación en o antes de su
+        // fecha; se buscan con un seek sobre (nit_normalizado, fecha_radicacion) acotado por el cursor,
+        // así las páginas profundas agregan cada vez menos grupos en lugar de todo el rango.
+        if (desde != null) {
+            sql.append("""
+                    AND rf.prefijo_factura IN (
+                        SELECT c.prefijo_factura
+                        FROM [fomagf].[dbo].[radicacion_filtrada] c
+                        WHERE
+                            c.nit_normalizado = ?
+                            AND c.fecha_radicacion >= ?
+                            AND c.fecha_radicacion <= ?)
+                """);
+            params.add(nit);
+            params.add(Date.valueOf(fechaInicio));
+            params.add(Timestamp.valueOf(desde.fecha()));
+        }
 
+        sql.append("""
+                GROUP BY
+                    rf.nit,
+                    rf.prefijo_factura
+            )
+            SELECT g.nit, g.prefijo_factura, g.fecha_radicacion, g.valor_facturado, g.valor_pagado, g.feccha_pago
+            FROM grupos g
+            """);
+
+        // El cursor se aplica sobre los grupos ya agregados (WHERE, no HAVING)
+        if (desde != null) {
+            sql.append("""
+                WHERE g.fecha_radicacion < ?
+                    OR (g.fecha_radicacion = ? AND g.prefijo_factura > ?)
+                """);
+            params.add(Timestamp.valueOf(desde.fecha()));
+            params.add(Timestamp.valueOf(desde.fecha()));
+            params.add(desde.prefijo());
+        }
+
+        sql.append("""
+            ORDER BY
+                g.fecha_radicacion DESC,
+                g.prefijo_factura
+            OFFSET ? ROWS FETCH NEXT ? ROWS ONLY
+            """);
+        params.add(desde != null ? 0 : page * size);
+        params.add(limit);
+
+        List<FilaRadicacion> filas = pagosJdbcTemplate.query(sql.toString(), params.toArray(), (rs, rowNum) ->
+                new FilaRadicacion(
+                        PagoRadicacionItem.builder()
+                                .nit(rs.getString("nit"))
+                                .prefijoFactura(rs.getString("prefijo_factura"))
+                                .fechaRadicacion(rs.getDate("fecha_radicacion").toLocalDate())
+                                .valorFacturado(rs.getBigDecimal("valor_facturado"))
+                                .valorPagado(rs.getBigDecimal("valor_pagado"))
+                                .fechaPago(rs.getDate("feccha_pago") != null ? rs.getDate("feccha_pago").toLocalDate() : null)
+                                .build(),
+                        rs.getTimestamp("fecha_radicacion").toLocalDateTime())
+        );
+
+        boolean hasNext = filas.size() > size;
+        if (hasNext) {
+            filas = filas.subList(0, size);
+        }
+        List<PagoRadicacionItem> items = filas.stream().map(FilaRadicacion::item).toList();
+        String nextCursor = null;
+        if (hasNext) {
+            FilaRadicacion ultima = filas.get(filas.size() - 1);
+            nextCursor = new RadicacionCursor(ultima.fechaOrden(), ultima.item().getPrefijoFactura()).codificar();
+        }
+
+        return PagoRadicacionPage.builder()
+                .nit(nit)
+                .fechaInicio(fechaInicio)
+                .fechaFin(fechaFinExclusiva)
+                .prefijo(prefijo)
+                .page(page)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .totalRows(totales.totalRows())
+                .totalFacturado(totales.totalFacturado())
+                .totalPagado(totales.totalPagado())
+                .totalPendiente(totales.totalPendiente())
+                .totalesDesdeCache(totalesDesdeCache)
+                .items(items)
+                .build();
+    }
+
+    /**
+     * Escribe en formato CSV todas las radicaciones del filtro, fila por fila desde un cursor
+     * forward-only, sin acumular el resultado en memoria.
+     */
+    @Transactional(readOnly = true, transactionManager = "pagosTransactionManager")
+    public void exportarRadicacionesCsv(String nit,
+                                        LocalDate fechaInicio,
+                                        LocalDate fechaFinExclusiva,
+                                        String prefijo,
+                                        OutputStream salida) throws IOException {
         StringBuilder sql = new StringBuilder("""
             SELECT
                 rf.nit,
@@ -112,7 +307,7 @@ public class PagosService {
                 MAX(rf.feccha_pago) AS feccha_pago
             FROM [fomagf].[dbo].[radicacion_filtrada] rf
             WHERE
-                LTRIM(RTRIM(rf.nit)) = LTRIM(RTRIM(?))
+                rf.nit_normalizado = ?
                 AND rf.fecha_radicacion >= ?
                 AND rf.fecha_radicacion <  ?
             """);
@@ -134,40 +329,156 @@ public class PagosService {
             ORDER BY
                 MIN(rf.fecha_radicacion) DESC,
                 rf.prefijo_factura
-            OFFSET ? ROWS FETCH NEXT ? ROWS ONLY
             """);
-        params.add(page * size);
-        params.add(limit);
 
-        List<PagoRadicacionItem> items = pagosJdbcTemplate.query(sql.toString(), params.toArray(), (rs, rowNum) ->
-                PagoRadicacionItem.builder()
-                        .nit(rs.getString("nit"))
-                        .prefijoFactura(rs.getString("prefijo_factura"))
-                        .fechaRadicacion(rs.getDate("fecha_radicacion").toLocalDate())
-                        .valorFacturado(rs.getBigDecimal("valor_facturado"))
-                        .valorPagado(rs.getBigDecimal("valor_pagado"))
-                        .fechaPago(rs.getDate("feccha_pago") != null ? rs.getDate("feccha_pago").toLocalDate() : null)
-                        .build()
-        );
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        writer.write('\uFEFF'); // BOM para que Excel reconozca UTF-8
+        writer.write("nit;prefijo_factura;fecha_radicacion;valor_facturado;valor_pagado;fecha_pago\n");
 
-        boolean hasNext = items.size() > size;
-        if (hasNext) {
-            items = items.subList(0, size);
+        try {
+            pagosJdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(exportFetchSize);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                Date fechaPago = rs.getDate("feccha_pago");
+                try {
+                    writer.write(csv(rs.getString("nit")));
+                    writer.write(';');
+                    writer.write(csv(rs.getString("prefijo_factura")));
+                    writer.write(';');
+                    writer.write(rs.getDate("fecha_radicacion").toLocalDate().toString());
+                    writer.write(';');
+                    writer.write(decimal(rs.getBigDecimal("valor_facturado")));
+                    writer.write(';');
+                    writer.write(decimal(rs.getBigDecimal("valor_pagado")));
+                    writer.write(';');
+                    writer.write(fechaPago != null ? fechaPago.toLocalDate().toString() : "");
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+        writer.flush();
+    }
 
-        return PagoRadicacionPage.builder()
-                .nit(nit)
-                .fechaInicio(fechaInicio)
-                .fechaFin(fechaFinExclusiva)
-                .prefijo(prefijo)
-                .page(page)
-                .size(size)
-                .hasNext(hasNext)
-                .totalRows(totales != null ? (Long) totales[0] : 0L)
-                .totalFacturado(totales != null ? (java.math.BigDecimal) totales[1] : java.math.BigDecimal.ZERO)
-                .totalPagado(totales != null ? (java.math.BigDecimal) totales[2] : java.math.BigDecimal.ZERO)
-                .totalPendiente(totales != null ? (java.math.BigDecimal) totales[3] : java.math.BigDecimal.ZERO)
-                .items(items)
-                .build();
+    private String csv(String valor) {
+        if (valor == null) return "";
+        String limpio = valor.trim();
+        if (limpio.indexOf(';') >= 0 || limpio.indexOf('"') >= 0 || limpio.indexOf('\n') >= 0) {
+            return "\"" + limpio.replace("\"", "\"\"") + "\"";
+        }
+        return limpio;
+    }
+
+    private String decimal(BigDecimal valor) {
+        return valor == null ? "0" : valor.toPlainString();
+    }
+
+    private TotalesRadicacion consultarTotales(FiltroRadicacion filtro) {
+        StringBuilder sqlTotales;
+        List<Object> paramsTot = new ArrayList<>();
+        paramsTot.add(filtro.nit());
+
+        // Ambas ramas cuentan el prefijo nulo igual que el resumen, que lo guarda como '': así
+        // total_rows no cambia según de dónde salga el total.
+        boolean mesesCompletos = filtro.fechaInicio().getDayOfMonth() == 1 && filtro.fechaFinExclusiva().getDayOfMonth() == 1;
+        if (mesesCompletos && resumenMensual.cubre(filtro.fechaFinExclusiva())) {
+            sqlTotales = new StringBuilder("""
+                SELECT
+                    COUNT(DISTINCT r.prefijo) AS total_rows,
+                    SUM(r.total_facturado) AS total_facturado,
+                    SUM(r.total_pagado) AS total_pagado
+                FROM [fomagf].[dbo].[pagos_resumen_mensual] r
+                WHERE
+                    r.nit = ?
+                    AND r.anio * 100 + r.mes >= ?
+                    AND r.anio * 100 + r.mes <  ?
+                """);
+            paramsTot.add(claveMes(YearMonth.from(filtro.fechaInicio())));
+            paramsTot.add(claveMes(YearMonth.from(filtro.fechaFinExclusiva())));
+            if (filtro.prefijo() != null) {
+                sqlTotales.append(" AND r.prefijo LIKE ? ");
+                paramsTot.add(filtro.prefijo() + "%");
+            }
+        } else {
+            sqlTotales = new StringBuilder("""
+                SELECT
+                    COUNT(DISTINCT ISNULL(rf.prefijo_factura, '')) AS total_rows,
+                    SUM(ISNULL(rf.valor_factura, 0)) AS total_facturado,
+                    SUM(ISNULL(rf.valor_pagado, 0)) AS total_pagado
+                FROM [fomagf].[dbo].[radicacion_filtrada] rf
+                WHERE
+                    rf.nit_normalizado = ?
+                    AND rf.fecha_radicacion >= ?
+                    AND rf.fecha_radicacion <  ?
+                """);
+            paramsTot.add(Date.valueOf(filtro.fechaInicio()));
+            paramsTot.add(Date.valueOf(filtro.fechaFinExclusiva()));
+            if (filtro.prefijo() != null) {
+                sqlTotales.append(" AND rf.prefijo_factura LIKE ? ");
+                paramsTot.add(filtro.prefijo() + "%");
+            }
+        }
+
+        TotalesRadicacion totales = pagosJdbcTemplate.queryForObject(sqlTotales.toString(), paramsTot.toArray(), (rs, rowNum) -> {
+            BigDecimal fact = rs.getBigDecimal("total_facturado");
+            BigDecimal pag = rs.getBigDecimal("total_pagado");
+            BigDecimal pendiente = fact != null && pag != null ? fact.subtract(pag) : BigDecimal.ZERO;
+            if (pendiente.compareTo(BigDecimal.ZERO) < 0) pendiente = BigDecimal.ZERO;
+            return new TotalesRadicacion(
+                    rs.getLong("total_rows"),
+                    fact == null ? BigDecimal.ZERO : fact,
+                    pag == null ? BigDecimal.ZERO : pag,
+                    pendiente);
+        });
+        return totales != null
+                ? totales
+                : new TotalesRadicacion(0L, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    private int resolverTamanoPagina(Integer tamano) {
+        if (tamano == null || tamano <= 0) {
+            return tamanoPagina;
+        }
+        return Math.min(tamano, tamanoPaginaMaximo);
+    }
+
+    record FiltroRadicacion(String nit, LocalDate fechaInicio, LocalDate fechaFinExclusiva, String prefijo) {}
+
+    record TotalesRadicacion(long totalRows, BigDecimal totalFacturado, BigDecimal totalPagado,
+                             BigDecimal totalPendiente) {}
+
+    private record FilaRadicacion(PagoRadicacionItem item, LocalDateTime fechaOrden) {}
+
+    /**
+     * Posición de la última fila entregada según el orden (MIN(fecha_radicacion) DESC, prefijo_factura).
+     * Se expone al cliente como un token opaco.
+     */
+    private record RadicacionCursor(LocalDateTime fecha, String prefijo) {
+
+        String codificar() {
+            String valor = fecha + "|" + prefijo;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static RadicacionCursor decodificar(String cursor) {
+            try {
+                String valor = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+                int separador = valor.indexOf('|');
+                if (separador < 0) {
+                    throw new IllegalArgumentException("Cursor sin separador");
+                }
+                return new RadicacionCursor(LocalDateTime.parse(valor.substring(0, separador)), valor.substring(separador + 1));
+            } catch (IllegalArgumentException | DateTimeParseException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor de paginación inválido");
+            }
+        }
     }
 }
@@ -0,0 +1,43 @@
+package com.fomag.convocatoria.service;
+
+import com.fomag.convocatoria.service.PagosService.FiltroRadicacion;
+import com.fomag.convocatoria.service.PagosService.TotalesRadicacion;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Totales de la consulta paginada de radicaciones por filtro (NIT, rango, prefijo), para no repetir
+ * la agregación en cada página que recorre el usuario. Acotada por tamaño y con TTL corto.
+ */
+@Component
+public class PagosTotalesCache {
+
+    private final Cache<FiltroRadicacion, TotalesRadicacion> cache;
+
+    public PagosTotalesCache(@Value("${pagos.radicaciones.totales-cache-max:2000}") long tamanoMaximo,
+                             @Value("${pagos.radicaciones.totales-ttl-seconds:120}") long ttlSegundos,
+                             MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "pagos.radicaciones.totales");
+    }
+
+    /** Totales ya calculados para el filtro, o {@code null} si no hay o expiraron. */
+    public TotalesRadicacion vigentes(FiltroRadicacion filtro) {
+        return cache.getIfPresent(filtro);
+    }
+
+    public TotalesRadicacion obtener(FiltroRadicacion filtro, Function<FiltroRadicacion, TotalesRadicacion> cargador) {
+        return cache.get(filtro, cargador);
+    }
+}
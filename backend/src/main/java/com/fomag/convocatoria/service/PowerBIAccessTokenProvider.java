@@ -0,0 +1,169 @@
+package com.fomag.convocatoria.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cachea el access token de Entra ID (client credentials) que usa {@link PowerBIService}.
+ * <ul>
+ *   <li>Respeta {@code expires_in}: el token se reutiliza hasta {@code expiry-skew-seconds} antes de vencer.</li>
+ *   <li>Cuando quedan menos de {@code refresh-before-seconds} se devuelve el token vigente y se
+ *       lanza la renovación en segundo plano.</li>
+ *   <li>Las renovaciones concurrentes comparten una única llamada en curso (single-flight).</li>
+ * </ul>
+ * La URL de autoridad es configurable ({@code pbi.authority-url}) para poder apuntar a un stub local.
+ */
+@Slf4j
+@Component
+public class PowerBIAccessTokenProvider {
+
+    private static final String SCOPE = "https://analysis.windows.net/powerbi/api/.default";
+
+    private final WebClient webClient;
+    private final PowerBIResiliencia resiliencia;
+    private final Clock clock;
+    private final String authorityUrl;
+    private final String tenantId;
+    private final String clientId;
+    private final String clientSecret;
+    private final Duration renovarAntes;
+    private final Duration margenExpiracion;
+
+    private final AtomicReference<TokenVigente> actual = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<TokenVigente>> enCurso = new AtomicReference<>();
+
+    public PowerBIAccessTokenProvider(@Qualifier("powerBIWebClient") WebClient webClient,
+                                      PowerBIResiliencia resiliencia,
+                                      @Value("${pbi.authority-url:https://login.microsoftonline.com}") String authorityUrl,
+                                      @Value("${pbi.tenant-id}") String tenantId,
+                                      @Value("${pbi.client-id}") String clientId,
+                                      @Value("${pbi.client-secret}") String clientSecret,
+                                      @Value("${pbi.token.refresh-before-seconds:300}") long renovarAntesSegundos,
+                                      @Value("${pbi.token.expiry-skew-seconds:30}") long margenSegundos) {
+        this(webClient, resiliencia, Clock.systemUTC(), authorityUrl, tenantId, clientId, clientSecret,
+                Duration.ofSeconds(renovarAntesSegundos), Duration.ofSeconds(margenSegundos));
+    }
+
+    PowerBIAccessTokenProvider(WebClient webClient, PowerBIResiliencia resiliencia, Clock clock, String authorityUrl,
+                               String tenantId, String clientId, String clientSecret,
+                               Duration renovarAntes, Duration margenExpiracion) {
+        this.webClient = webClient;
+        this.resiliencia = resiliencia;
+        this.clock = clock;
+        this.authorityUrl = authorityUrl;
+        this.tenantId = tenantId;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.renovarAntes = renovarAntes;
+        this.margenExpiracion = margenExpiracion;
+    }
+
+    public Mono<String> obtenerToken() {
+        TokenVigente token = actual.get();
+        Instant ahora = clock.instant();
+        if (token != null && ahora.isBefore(token.expira().minus(margenExpiracion))) {
+            if (!ahora.isBefore(token.expira().minus(renovarAntes))) {
+                renovar().whenComplete((nuevo, error) -> {
+                    if (error != null) {
+                        log.warn("Renovación anticipada del token de Entra ID falló; se sigue usando el vigente");
+                    }
+                });
+            }
+            return Mono.just(token.valor());
+        }
+        return Mono.fromFuture(this::renovar, true).map(TokenVigente::valor);
+    }
+
+    /**
+     * Descarta el token en memoria, por ejemplo cuando Power BI responde 401 con él.
+     */
+    public void invalidar() {
+        actual.set(null);
+    }
+
+    private CompletableFuture<TokenVigente> renovar() {
+        while (true) {
+            CompletableFuture<TokenVigente> existente = enCurso.get();
+            if (existente != null) {
+                return existente;
+            }
+            CompletableFuture<TokenVigente> nuevo = new CompletableFuture<>();
+            if (enCurso.compareAndSet(null, nuevo)) {
+                solicitar().subscribe(
+                        token -> {
+                            actual.set(token);
+                            enCurso.set(null);
+                            nuevo.complete(token);
+                        },
+                        error -> {
+                            enCurso.set(null);
+                            nuevo.completeExceptionally(error);
+                        },
+                        () -> {
+                            if (!nuevo.isDone()) {
+                                enCurso.set(null);
+                                nuevo.completeExceptionally(tokenVacio());
+                            }
+                        });
+                return nuevo;
+            }
+        }
+    }
+
+    private Mono<TokenVigente> solicitar() {
+        Instant solicitadoEn = clock.instant();
+        return resiliencia.ejecutar("Entra ID token request", () -> webClient.post()
+                .uri(authorityUrl + "/{tenantId}/oauth2/v2.0/token", tenantId)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData("client_id", clientId)
+                        .with("client_secret", clientSecret)
+                        .with("grant_type", "client_credentials")
+                        .with("scope", SCOPE))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response -> {
+                    int status = response.statusCode().value();
+                    if (PowerBIResiliencia.esEstadoTransitorio(status)) {
+                        return response.releaseBody()
+                                .then(Mono.error(new PowerBIResiliencia.ErrorTransitorio("Entra ID token request", status)));
+                    }
+                    // No se registra el cuerpo: puede contener detalles del secreto o del tenant.
+                    log.error("Entra ID token request failed with status {}", status);
+                    return response.releaseBody()
+                            .then(Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Power BI auth/config error")));
+                })
+                .bodyToMono(TokenResponse.class))
+                .flatMap(respuesta -> {
+                    if (respuesta.accessToken() == null || respuesta.accessToken().isBlank()) {
+                        return Mono.error(tokenVacio());
+                    }
+                    long segundos = respuesta.expiresIn() == null ? 3600 : respuesta.expiresIn();
+                    return Mono.just(new TokenVigente(respuesta.accessToken(), solicitadoEn.plusSeconds(segundos)));
+                });
+    }
+
+    private ResponseStatusException tokenVacio() {
+        log.error("Entra ID token request returned empty token");
+        return new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Power BI auth/config error");
+    }
+
+    private record TokenVigente(String valor, Instant expira) {}
+
+    private record TokenResponse(@JsonProperty("access_token") String accessToken,
+                                 @JsonProperty("expires_in") Long expiresIn) {}
+}
@@ -0,0 +1,103 @@
+package com.fomag.convocatoria.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.function.Supplier;
+
+/**
+ * Embed tokens RLS por prestador. Un token se reutiliza hasta {@code pbi.embed-cache.refresh-margin-seconds}
+ * antes de su {@code expiration}; las solicitudes concurrentes de la misma clave comparten la
+ * misma llamada a Power BI y las entradas fallidas no se conservan.
+ */
+@Slf4j
+@Component
+public class PowerBIEmbedTokenCache {
+
+    private final AsyncCache<ClaveEmbed, PowerBIService.EmbedConfig> cache;
+    private final Timer tiempoGeneracion;
+    private final Duration margen;
+
+    public PowerBIEmbedTokenCache(@Value("${pbi.embed-cache.max-size:2000}") long tamanoMaximo,
+                                  @Value("${pbi.embed-cache.refresh-margin-seconds:300}") long margenSegundos,
+                                  MeterRegistry meterRegistry) {
+        this.margen = Duration.ofSeconds(margenSegundos);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfter(new ExpiraAntesDelToken())
+                .recordStats()
+                .buildAsync();
+        this.tiempoGeneracion = Timer.builder("pbi.embed.generacion")
+                .description("Latencia de la llamada GenerateToken a Power BI (incluye obtener el access token)")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "pbi.embed");
+    }
+
+    public Mono<PowerBIService.EmbedConfig> obtener(ClaveEmbed clave, Supplier<Mono<PowerBIService.EmbedConfig>> generador) {
+        return Mono.fromFuture(() -> cache.get(clave, (k, executor) -> medir(generador).toFuture()), true);
+    }
+
+    public void invalidar(ClaveEmbed clave) {
+        cache.synchronous().invalidate(clave);
+    }
+
+    private Mono<PowerBIService.EmbedConfig> medir(Supplier<Mono<PowerBIService.EmbedConfig>> generador) {
+        return Mono.defer(() -> {
+            Timer.Sample muestra = Timer.start();
+            return generador.get().doFinally(senal -> muestra.stop(tiempoGeneracion));
+        });
+    }
+
+    private long nanosDeVida(PowerBIService.EmbedConfig config) {
+        Instant expira = parsearExpiracion(config.expiration());
+        if (expira == null) {
+            return 0;
+        }
+        Duration vida = Duration.between(Instant.now(), expira.minus(margen));
+        return vida.isNegative() ? 0 : vida.toNanos();
+    }
+
+    private Instant parsearExpiracion(String expiracion) {
+        if (expiracion == null || expiracion.isBlank()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(expiracion).toInstant();
+        } catch (DateTimeParseException e) {
+            log.warn("Expiración de embed token no reconocida: {}", expiracion);
+            return null;
+        }
+    }
+
+    public record ClaveEmbed(String nit, String reportId, String datasetId, String rlsRole) {}
+
+    private class ExpiraAntesDelToken implements Expiry<ClaveEmbed, PowerBIService.EmbedConfig> {
+
+        @Override
+        public long expireAfterCreate(ClaveEmbed clave, PowerBIService.EmbedConfig config, long ahora) {
+            return nanosDeVida(config);
+        }
+
+        @Override
+        public long expireAfterUpdate(ClaveEmbed clave, PowerBIService.EmbedConfig config, long ahora, long restante) {
+            return nanosDeVida(config);
+        }
+
+        @Override
+        public long expireAfterRead(ClaveEmbed clave, PowerBIService.EmbedConfig config, long ahora, long restante) {
+            return restante;
+        }
+    }
+}
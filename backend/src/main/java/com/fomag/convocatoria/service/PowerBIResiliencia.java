@@ -0,0 +1,90 @@
+package com.fomag.convocatoria.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead y reintentos para las llamadas a Entra ID / Power BI.
+ * <ul>
+ *   <li>Como máximo {@code pbi.bulkhead.max-concurrent} llamadas simultáneas; el exceso se rechaza
+ *       de inmediato con 503 en lugar de encolarse.</li>
+ *   <li>Las respuestas 429/5xx y los errores de conexión o timeout se reintentan con backoff
+ *       exponencial; agotados los intentos se responde 502.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class PowerBIResiliencia {
+
+    private final Semaphore permisos;
+    private final int maxConcurrentes;
+    private final int reintentos;
+    private final Duration esperaInicial;
+    private final Counter rechazos;
+
+    public PowerBIResiliencia(@Value("${pbi.bulkhead.max-concurrent:20}") int maxConcurrentes,
+                              @Value("${pbi.retry.max-attempts:3}") int reintentos,
+                              @Value("${pbi.retry.initial-backoff-ms:200}") long esperaInicialMs,
+                              MeterRegistry meterRegistry) {
+        this.maxConcurrentes = maxConcurrentes;
+        this.permisos = new Semaphore(maxConcurrentes);
+        this.reintentos = reintentos;
+        this.esperaInicial = Duration.ofMillis(esperaInicialMs);
+        this.rechazos = Counter.builder("pbi.bulkhead.rechazos")
+                .description("Llamadas a Power BI rechazadas por exceder el límite de concurrencia")
+                .register(meterRegistry);
+        Gauge.builder("pbi.bulkhead.en_uso", this, r -> r.maxConcurrentes - r.permisos.availablePermits())
+                .description("Llamadas a Power BI en curso")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> ejecutar(String etapa, Supplier<Mono<T>> llamada) {
+        return Mono.defer(() -> {
+                    if (!permisos.tryAcquire()) {
+                        rechazos.increment();
+                        return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                "Power BI no está disponible en este momento, intente de nuevo"));
+                    }
+                    return llamada.get().doFinally(senal -> permisos.release());
+                })
+                .retryWhen(Retry.backoff(reintentos, esperaInicial)
+                        .maxBackoff(Duration.ofSeconds(5))
+                        .filter(PowerBIResiliencia::esTransitorio)
+                        .doBeforeRetry(senal -> log.warn("{} falló ({}), reintento {}", etapa,
+                                senal.failure().getMessage(), senal.totalRetries() + 1))
+                        .onRetryExhaustedThrow((spec, senal) -> {
+                            log.error("{} falló tras {} reintentos", etapa, senal.totalRetries());
+                            return new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Power BI auth/config error");
+                        }));
+    }
+
+    public static boolean esEstadoTransitorio(int status) {
+        return status == HttpStatus.TOO_MANY_REQUESTS.value() || status >= 500;
+    }
+
+    private static boolean esTransitorio(Throwable error) {
+        return error instanceof ErrorTransitorio || error instanceof WebClientRequestException;
+    }
+
+    /**
+     * Respuesta 429/5xx de Microsoft; se reintenta.
+     */
+    public static class ErrorTransitorio extends RuntimeException {
+        public ErrorTransitorio(String etapa, int status) {
+            super(etapa + " respondió " + status);
+        }
+    }
+}
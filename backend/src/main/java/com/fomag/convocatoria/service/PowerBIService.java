@@ -1,6 +1,5 @@
 package com.fomag.convocatoria.service;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,7 +9,6 @@ import org.springframework.http.MediaType;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
@@ -24,7 +22,13 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class PowerBIService {
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient powerBIWebClient;
+    private final PowerBIAccessTokenProvider accessTokenProvider;
+    private final PowerBIEmbedTokenCache embedTokenCache;
+    private final PowerBIResiliencia resiliencia;
+
+    @Value("${pbi.api-url:https://api.powerbi.com}")
+    private String apiUrl;
 
     @Value("${pbi.tenant-id}")
     private String tenantId;
@@ -47,12 +51,22 @@ public class PowerBIService {
     @Value("${pbi.rls-role:PrestadorRLS}")
     private String rlsRole;
 
-    public EmbedConfig getEmbedConfig(String nit) {
-        ensureConfigured();
-        String accessToken = acquireAccessToken();
-        EmbedTokenResponse embedToken = generateEmbedToken(accessToken, nit.trim());
-        String embedUrl = String.format("https://app.powerbi.com/reportEmbed?reportId=%s&groupId=%s", reportId, groupId);
-        return new EmbedConfig(reportId, embedUrl, embedToken.token(), embedToken.expiration());
+    /**
+     * Flujo completamente no bloqueante: el hilo del servlet se libera mientras se espera a Microsoft.
+     */
+    public Mono<EmbedConfig> getEmbedConfig(String nit) {
+        return Mono.defer(() -> {
+            ensureConfigured();
+            String nitNormalizado = nit.trim();
+            var clave = new PowerBIEmbedTokenCache.ClaveEmbed(nitNormalizado, reportId, datasetId, rlsRole);
+            return embedTokenCache.obtener(clave, () -> accessTokenProvider.obtenerToken()
+                    .flatMap(accessToken -> generateEmbedToken(accessToken, nitNormalizado))
+                    .map(embedToken -> new EmbedConfig(reportId, embedUrl(), embedToken.token(), embedToken.expiration())));
+        });
+    }
+
+    private String embedUrl() {
+        return String.format("https://app.powerbi.com/reportEmbed?reportId=%s&groupId=%s", reportId, groupId);
     }
 
     private void ensureConfigured() {
@@ -63,31 +77,7 @@ public class PowerBIService {
         }
     }
 
-    private String acquireAccessToken() {
-        WebClient client = webClientBuilder.build();
-        TokenResponse tokenResponse = client.post()
-                .uri("https://login.microsoftonline.com/{tenantId}/oauth2/v2.0/token", tenantId)
-                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                .body(BodyInserters.fromFormData("client_id", clientId)
-                        .with("client_secret", clientSecret)
-                        .with("grant_type", "client_credentials")
-                        .with("scope", "https://analysis.windows.net/powerbi/api/.default"))
-                .retrieve()
-                .onStatus(HttpStatusCode::isError,
-                        response -> logAndMapPowerBIError("Entra ID token request", response, true))
-                .bodyToMono(TokenResponse.class)
-                .block();
-
-        if (tokenResponse == null || tokenResponse.accessToken() == null || tokenResponse.accessToken().isBlank()) {
-            log.error("Entra ID token request returned empty token");
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Power BI auth/config error");
-        }
-
-        return tokenResponse.accessToken();
-    }
-
-    private EmbedTokenResponse generateEmbedToken(String accessToken, String nit) {
-        WebClient client = webClientBuilder.build();
+    private Mono<EmbedTokenResponse> generateEmbedToken(String accessToken, String nit) {
         Map<String, Object> payload = Map.of("accessLevel", "View");
 
         // Solo enviamos identities cuando hay rol RLS configurado.
@@ -102,25 +92,32 @@ public class PowerBIService {
             );
         }
 
-        EmbedTokenResponse response = client.post()
-                .uri("https://api.powerbi.com/v1.0/myorg/groups/{groupId}/reports/{reportId}/GenerateToken", groupId, reportId)
+        Map<String, Object> cuerpo = payload;
+        return resiliencia.ejecutar("Power BI embed token request", () -> powerBIWebClient.post()
+                .uri(apiUrl + "/v1.0/myorg/groups/{groupId}/reports/{reportId}/GenerateToken", groupId, reportId)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
                 .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(payload)
+                .bodyValue(cuerpo)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError,
                         clientResponse -> logAndMapPowerBIError("Power BI embed token request", clientResponse, false))
-                .bodyToMono(EmbedTokenResponse.class)
-                .block();
-
-        if (response == null || response.token() == null || response.token().isBlank()) {
-            log.error("Power BI embed token request returned empty token");
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Power BI auth/config error");
-        }
-        return response;
+                .bodyToMono(EmbedTokenResponse.class))
+                .filter(response -> response.token() != null && !response.token().isBlank())
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.error("Power BI embed token request returned empty token");
+                    return Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Power BI auth/config error"));
+                }));
     }
 
-    private Mono<ResponseStatusException> logAndMapPowerBIError(String stage, ClientResponse response, boolean redactBody) {
+    private Mono<RuntimeException> logAndMapPowerBIError(String stage, ClientResponse response, boolean redactBody) {
+        int status = response.statusCode().value();
+        if (PowerBIResiliencia.esEstadoTransitorio(status)) {
+            return response.releaseBody().then(Mono.error(new PowerBIResiliencia.ErrorTransitorio(stage, status)));
+        }
+        if (status == HttpStatus.UNAUTHORIZED.value()) {
+            // El access token cacheado ya no es aceptado; la siguiente solicitud pedirá uno nuevo.
+            accessTokenProvider.invalidar();
+        }
         return response.bodyToMono(String.class)
                 .defaultIfEmpty("")
                 .flatMap(body -> {
@@ -135,7 +132,5 @@ public class PowerBIService {
 
     public record EmbedConfig(String reportId, String embedUrl, String embedToken, String expiration) {}
 
-    private record TokenResponse(@JsonProperty("access_token") String accessToken) {}
-
     private record EmbedTokenResponse(String token, String expiration) {}
 }
@@ -0,0 +1,56 @@
+package com.fomag.convocatoria.service;
+
+import com.fomag.convocatoria.domain.model.Prestador;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Perfil del prestador por NIT con TTL corto. Se invalida desde {@link PrestadorPerfilService} en
+ * cada escritura sobre {@code registro_prestadores}; si hay una transacción activa la invalidación se hace
+ * después del commit, para que una lectura concurrente no vuelva a cachear el dato anterior.
+ */
+@Component
+public class PrestadorPerfilCache {
+
+    private final Cache<String, Optional<Prestador>> cache;
+
+    public PrestadorPerfilCache(@Value("${prestador.cache.max-size:10000}") long tamanoMaximo,
+                                @Value("${prestador.cache.ttl-seconds:60}") long ttlSegundos,
+                                MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "prestador.perfil");
+    }
+
+    public Optional<Prestador> obtener(String nit, Function<String, Optional<Prestador>> cargador) {
+        return cache.get(nit, cargador);
+    }
+
+    public void invalidar(String nit) {
+        if (nit == null) {
+            return;
+        }
+        cache.invalidate(nit);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(nit);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.fomag.convocatoria.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Mantiene {@code dbo.prestador_perfil} (una fila por NIT con los datos de contacto del último
+ * registro) y la caché {@link PrestadorPerfilCache}. Debe llamarse al final de toda escritura sobre
+ * {@code registro_prestadores}, dentro de la misma transacción.
+ */
+@Service
+@RequiredArgsConstructor
+public class PrestadorPerfilService {
+
+    /**
+     * El destino del MERGE es solo la fila del NIT (CTE {@code perfil}): así HOLDLOCK bloquea el
+     * rango de esa clave y la rama NOT MATCHED BY SOURCE no recorre ni bloquea el resto de la tabla.
+     */
+    private static final String SINCRONIZAR_SQL = """
+        WITH perfil AS (
+            SELECT * FROM dbo.prestador_perfil WITH (HOLDLOCK) WHERE nit = ?
+        )
+        MERGE perfil AS t
+        USING (
+            SELECT TOP 1 nit_normalizado, nombre_prestador, clase_prestador, telefono_fijo, celular_admin,
+                   correo_admin, representante_legal, correo_representante, celular_representante, fecha_registro
+            FROM dbo.registro_prestadores
+            WHERE nit_normalizado = ?
+            ORDER BY fecha_registro DESC
+        ) AS s
+        ON t.nit = s.nit_normalizado
+        WHEN MATCHED THEN UPDATE SET
+            nombre_prestador = s.nombre_prestador,
+            clase_prestador = s.clase_prestador,
+            telefono_fijo = s.telefono_fijo,
+            celular_admin = s.celular_admin,
+            correo_admin = s.correo_admin,
+            representante_legal = s.representante_legal,
+            correo_representante = s.correo_representante,
+            celular_representante = s.celular_representante,
+            fecha_registro = s.fecha_registro,
+            actualizado_en = SYSDATETIME()
+        WHEN NOT MATCHED BY TARGET THEN
+            INSERT (nit, nombre_prestador, clase_prestador, telefono_fijo, celular_admin, correo_admin,
+                    representante_legal, correo_representante, celular_representante, fecha_registro)
+            VALUES (s.nit_normalizado, s.nombre_prestador, s.clase_prestador, s.telefono_fijo, s.celular_admin,
+                    s.correo_admin, s.representante_legal, s.correo_representante, s.celular_representante,
+                    s.fecha_registro)
+        WHEN NOT MATCHED BY SOURCE THEN DELETE;
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PrestadorPerfilCache perfilCache;
+
+    public void actualizar(String nit) {
+        if (nit == null) {
+            return;
+        }
+        jdbcTemplate.update(SINCRONIZAR_SQL, nit, nit);
+        perfilCache.invalidar(nit);
+    }
+}
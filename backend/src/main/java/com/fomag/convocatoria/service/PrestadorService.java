@@ -1,8 +1,6 @@
 package com.fomag.convocatoria.service;
 
 import com.fomag.convocatoria.domain.model.Prestador;
-import com.fomag.convocatoria.persistence.repository.PrestadorRepository;
-import com.fomag.convocatoria.persistence.repository.RegistroPrestadorRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -14,67 +12,76 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class PrestadorService {
 
-    private final PrestadorRepository prestadorRepository;
-    private final RegistroPrestadorRepository registroPrestadorRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final PrestadorPerfilCache perfilCache;
 
-    @Transactional(readOnly = true)
+    /**
+     * Resuelve en una sola consulta el perfil en {@code prestador_perfil} (último registro) y, si no
+     * existe, el nombre en {@code prestadores} (fuente original).
+     */
     public Optional<Prestador> buscarPorNit(String nit) {
-        // 1. Si existe en registro_prestadores, devolvemos estado de registro existente
-        if (registroPrestadorRepository.existsByNit(nit)) {
-            String sql = """
-                SELECT TOP 1 nombre_prestador, clase_prestador, telefono_fijo, celular_admin, correo_admin,
-                               representante_legal, correo_representante, celular_representante
-                FROM dbo.registro_prestadores
-                WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-                ORDER BY fecha_registro DESC
-                """;
-            return jdbcTemplate.query(sql, rs -> {
-                if (rs.next()) {
-                    return Optional.of(
-                            Prestador.builder()
-                                    .nit(nit)
-                                    .nombre(rs.getString("nombre_prestador"))
-                                    .clasePrestador(rs.getString("clase_prestador"))
-                                    .telefonoFijo(rs.getString("telefono_fijo"))
-                                    .celularAdmin(rs.getString("celular_admin"))
-                                    .correoAdmin(rs.getString("correo_admin"))
-                                    .representanteLegal(rs.getString("representante_legal"))
-                                    .correoRepresentante(rs.getString("correo_representante"))
-                                    .celularRepresentante(rs.getString("celular_representante"))
-                                    .estado("EXISTE_REGISTRO")
-                                    .build()
-                    );
-                }
-                return Optional.empty();
-            }, nit);
-        }
+        return perfilCache.obtener(nit, this::consultarPerfil);
+    }
 
-        // 2. Buscar en prestadores (fuente original)
-        return prestadorRepository.findFirstByNit(nit)
-                .map(entity -> Prestador.builder()
-                        .nit(entity.getNit())
-                        .nombre(entity.getNombre())
-                        .clasePrestador(null)
-                        .telefonoFijo(null)
-                        .celularAdmin(null)
-                        .correoAdmin(null)
-                        .representanteLegal(null)
-                        .correoRepresentante(null)
-                        .celularRepresentante(null)
-                        .estado("ENCONTRADO")
-                        .build());
+    private Optional<Prestador> consultarPerfil(String nit) {
+        String sql = """
+            SELECT r.existe_registro, r.nombre_prestador, r.clase_prestador, r.telefono_fijo, r.celular_admin,
+                   r.correo_admin, r.representante_legal, r.correo_representante, r.celular_representante,
+                   p.nits_nit, p.nombre_prestador AS nombre_origen
+            FROM (SELECT 1 AS fila) k
+            OUTER APPLY (
+                SELECT 1 AS existe_registro, nombre_prestador, clase_prestador, telefono_fijo, celular_admin,
+                       correo_admin, representante_legal, correo_representante, celular_representante
+                FROM dbo.prestador_perfil
+                WHERE nit = ?
+            ) r
+            OUTER APPLY (
+                SELECT TOP 1 nits_nit, nombre_prestador
+                FROM dbo.prestadores
+                WHERE nits_nit = ?
+            ) p
+            """;
+        return jdbcTemplate.query(sql, rs -> {
+            if (!rs.next()) {
+                return Optional.empty();
+            }
+            // 1. Si existe en registro_prestadores, devolvemos estado de registro existente
+            if (rs.getObject("existe_registro") != null) {
+                return Optional.of(
+                        Prestador.builder()
+                                .nit(nit)
+                                .nombre(rs.getString("nombre_prestador"))
+                                .clasePrestador(rs.getString("clase_prestador"))
+                                .telefonoFijo(rs.getString("telefono_fijo"))
+                                .celularAdmin(rs.getString("celular_admin"))
+                                .correoAdmin(rs.getString("correo_admin"))
+                                .representanteLegal(rs.getString("representante_legal"))
+                                .correoRepresentante(rs.getString("correo_representante"))
+                                .celularRepresentante(rs.getString("celular_representante"))
+                                .estado("EXISTE_REGISTRO")
+                                .build()
+                );
+            }
+            // 2. Prestadores (fuente original)
+            if (rs.getString("nits_nit") != null) {
+                return Optional.of(
+                        Prestador.builder()
+                                .nit(rs.getString("nits_nit"))
+                                .nombre(rs.getString("nombre_origen"))
+                                .estado("ENCONTRADO")
+                                .build()
+                );
+            }
+            return Optional.empty();
+        }, nit, nit);
     }
 
     @Transactional(readOnly = true)
     public boolean existeRegistroSst(String nit) {
         String sql = """
             SELECT COUNT(*) FROM dbo.registro_prestadores
-            WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-              AND (
-                   UPPER(LTRIM(RTRIM(tipo_registro))) = 'SST'
-                OR UPPER(LTRIM(RTRIM(servicio))) = 'SST'
-              )
+            WHERE nit_normalizado = ?
+              AND es_sst = 1
             """;
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, nit);
         return count != null && count > 0;
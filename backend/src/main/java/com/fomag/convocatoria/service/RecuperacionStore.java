@@ -0,0 +1,30 @@
+package com.fomag.convocatoria.service;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Almacenamiento con vencimiento de los desafíos y tokens del flujo de recuperación de clave.
+ * Implementaciones: {@link RecuperacionStoreMemoria} (por defecto, una sola instancia) y
+ * {@link RecuperacionStoreJdbc} ({@code acceso.recuperacion.store=jdbc}, compartida entre instancias).
+ */
+public interface RecuperacionStore {
+
+    void guardarDesafio(String desafioId, Desafio desafio);
+
+    /**
+     * Devuelve el desafío solo si no ha vencido.
+     */
+    Optional<Desafio> obtenerDesafio(String desafioId);
+
+    void guardarToken(String token, String nit, Instant expira);
+
+    Optional<String> obtenerToken(String token);
+
+    /**
+     * Obtiene y elimina el token de forma atómica: un token solo se puede usar una vez.
+     */
+    Optional<String> consumirToken(String token);
+
+    record Desafio(String nit, String representante, String correo, String celular, String correoAdmin, Instant expira) {}
+}
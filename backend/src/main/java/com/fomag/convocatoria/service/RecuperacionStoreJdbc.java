@@ -0,0 +1,112 @@
+package com.fomag.convocatoria.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Desafíos y tokens en la tabla {@code dbo.acceso_recuperacion}, para que la recuperación funcione
+ * con varias instancias detrás del balanceador. Las fechas se guardan en UTC.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "acceso.recuperacion.store", havingValue = "jdbc")
+public class RecuperacionStoreJdbc implements RecuperacionStore {
+
+    private static final String TIPO_DESAFIO = "DESAFIO";
+    private static final String TIPO_TOKEN = "TOKEN";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter barridos;
+
+    public RecuperacionStoreJdbc(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.barridos = Counter.builder("acceso.recuperacion.barridos")
+                .description("Desafíos y tokens de recuperación vencidos eliminados")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void guardarDesafio(String desafioId, Desafio desafio) {
+        jdbcTemplate.update("""
+                INSERT INTO dbo.acceso_recuperacion (clave, tipo, nit, representante, correo, celular, correo_admin, expira)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """,
+                desafioId, TIPO_DESAFIO, desafio.nit(), desafio.representante(), desafio.correo(),
+                desafio.celular(), desafio.correoAdmin(), utc(desafio.expira()));
+    }
+
+    @Override
+    public Optional<Desafio> obtenerDesafio(String desafioId) {
+        List<Desafio> desafios = jdbcTemplate.query("""
+                SELECT nit, representante, correo, celular, correo_admin, expira
+                FROM dbo.acceso_recuperacion
+                WHERE clave = ? AND tipo = ? AND expira > SYSUTCDATETIME()
+                """,
+                (rs, rowNum) -> new Desafio(
+                        rs.getString("nit"),
+                        rs.getString("representante"),
+                        rs.getString("correo"),
+                        rs.getString("celular"),
+                        rs.getString("correo_admin"),
+                        instante(rs.getTimestamp("expira"))),
+                desafioId, TIPO_DESAFIO);
+        return desafios.stream().findFirst();
+    }
+
+    @Override
+    public void guardarToken(String token, String nit, Instant expira) {
+        jdbcTemplate.update("""
+                INSERT INTO dbo.acceso_recuperacion (clave, tipo, nit, expira)
+                VALUES (?, ?, ?, ?)
+                """, token, TIPO_TOKEN, nit, utc(expira));
+    }
+
+    @Override
+    public Optional<String> obtenerToken(String token) {
+        List<String> nits = jdbcTemplate.queryForList("""
+                SELECT nit FROM dbo.acceso_recuperacion
+                WHERE clave = ? AND tipo = ? AND expira > SYSUTCDATETIME()
+                """, String.class, token, TIPO_TOKEN);
+        return nits.stream().findFirst();
+    }
+
+    @Override
+    public Optional<String> consumirToken(String token) {
+        List<String> nits = jdbcTemplate.queryForList("""
+                DELETE FROM dbo.acceso_recuperacion
+                OUTPUT DELETED.nit
+                WHERE clave = ? AND tipo = ? AND expira > SYSUTCDATETIME()
+                """, String.class, token, TIPO_TOKEN);
+        return nits.stream().findFirst();
+    }
+
+    @Scheduled(fixedDelayString = "${acceso.recuperacion.sweep-ms:300000}")
+    public void barrerVencidos() {
+        try {
+            int eliminados = jdbcTemplate.update("DELETE FROM dbo.acceso_recuperacion WHERE expira <= SYSUTCDATETIME()");
+            barridos.increment(eliminados);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron eliminar los desafíos de recuperación vencidos", e);
+        }
+    }
+
+    private static Timestamp utc(Instant instante) {
+        return Timestamp.valueOf(instante.atZone(ZoneOffset.UTC).toLocalDateTime());
+    }
+
+    private static Instant instante(Timestamp timestamp) {
+        return timestamp.toLocalDateTime().toInstant(ZoneOffset.UTC);
+    }
+}
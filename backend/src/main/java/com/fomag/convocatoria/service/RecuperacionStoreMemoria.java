@@ -0,0 +1,94 @@
+package com.fomag.convocatoria.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Desafíos y tokens en memoria con capacidad máxima. Caffeine vence cada entrada en su
+ * {@code expira} (rueda de tiempos) y el {@link Scheduler} del sistema las barre en segundo plano,
+ * aunque no haya más accesos.
+ */
+@Component
+@ConditionalOnProperty(name = "acceso.recuperacion.store", havingValue = "memoria", matchIfMissing = true)
+public class RecuperacionStoreMemoria implements RecuperacionStore {
+
+    private final Cache<String, Desafio> desafios;
+    private final Cache<String, TokenRecuperacion> tokens;
+
+    public RecuperacionStoreMemoria(@Value("${acceso.recuperacion.max-size:10000}") long tamanoMaximo,
+                                    MeterRegistry meterRegistry) {
+        this.desafios = construir(tamanoMaximo, Desafio::expira);
+        this.tokens = construir(tamanoMaximo, TokenRecuperacion::expira);
+        CaffeineCacheMetrics.monitor(meterRegistry, desafios, "acceso.recuperacion.desafios");
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "acceso.recuperacion.tokens");
+    }
+
+    @Override
+    public void guardarDesafio(String desafioId, Desafio desafio) {
+        desafios.put(desafioId, desafio);
+    }
+
+    @Override
+    public Optional<Desafio> obtenerDesafio(String desafioId) {
+        return Optional.ofNullable(desafios.getIfPresent(desafioId))
+                .filter(d -> d.expira().isAfter(Instant.now()));
+    }
+
+    @Override
+    public void guardarToken(String token, String nit, Instant expira) {
+        tokens.put(token, new TokenRecuperacion(nit, expira));
+    }
+
+    @Override
+    public Optional<String> obtenerToken(String token) {
+        return Optional.ofNullable(tokens.getIfPresent(token))
+                .filter(t -> t.expira().isAfter(Instant.now()))
+                .map(TokenRecuperacion::nit);
+    }
+
+    @Override
+    public Optional<String> consumirToken(String token) {
+        return Optional.ofNullable(tokens.asMap().remove(token))
+                .filter(t -> t.expira().isAfter(Instant.now()))
+                .map(TokenRecuperacion::nit);
+    }
+
+    private static <V> Cache<String, V> construir(long tamanoMaximo, Function<V, Instant> expira) {
+        return Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfter(new Expiry<String, V>() {
+                    @Override
+                    public long expireAfterCreate(String clave, V valor, long ahora) {
+                        Duration vida = Duration.between(Instant.now(), expira.apply(valor));
+                        return vida.isNegative() ? 0 : vida.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String clave, V valor, long ahora, long restante) {
+                        return expireAfterCreate(clave, valor, ahora);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String clave, V valor, long ahora, long restante) {
+                        return restante;
+                    }
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .recordStats()
+                .build();
+    }
+
+    private record TokenRecuperacion(String nit, Instant expira) {}
+}
@@ -1,19 +1,23 @@
 package com.fomag.convocatoria.service;
 
 import com.fomag.convocatoria.api.dto.RegistroNuevoRequest;
+import com.fomag.convocatoria.persistence.JdbcBatchWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class RegistroNuevoService {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final JdbcBatchWriter batchWriter;
+    private final PrestadorPerfilService prestadorPerfil;
 
     private static final String INSERT_SQL = """
         INSERT INTO dbo.registro_prestadores
@@ -26,9 +30,10 @@ public class RegistroNuevoService {
 
     @Transactional
     public void registrarNuevo(RegistroNuevoRequest request) {
+        List<Object[]> filas = new ArrayList<>();
         for (RegistroNuevoRequest.SedeNueva sede : request.getSedes()) {
             String direccionCompleta = construirDireccion(sede);
-            Object[] params = new Object[]{
+            filas.add(new Object[]{
                     request.getNit(),
                     request.getNombrePrestador(),
                     request.getClasePrestador(),
@@ -47,13 +52,14 @@ public class RegistroNuevoService {
                     request.isTransporte() ? 1 : 0,
                     request.isInsumosMedicos() ? 1 : 0,
                     request.isMedicamentos() ? 1 : 0
-            };
+            });
+        }
 
-            try {
-                jdbcTemplate.update(INSERT_SQL, params);
-            } catch (DataAccessException e) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al registrar la sede " + direccionCompleta, e);
-            }
+        try {
+            batchWriter.ejecutar(INSERT_SQL, filas);
+            prestadorPerfil.actualizar(request.getNit());
+        } catch (DataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al registrar las sedes", e);
         }
     }
 
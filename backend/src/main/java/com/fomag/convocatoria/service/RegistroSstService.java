@@ -2,9 +2,11 @@ package com.fomag.convocatoria.service;
 
 import com.fomag.convocatoria.api.dto.RegistroSstRequest;
 import com.fomag.convocatoria.api.dto.ActualizarSedeSstRequest;
+import com.fomag.convocatoria.persistence.JdbcBatchWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -12,10 +14,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +27,8 @@ import java.util.List;
 public class RegistroSstService {
 
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcBatchWriter batchWriter;
+    private final PrestadorPerfilService prestadorPerfil;
 
     private static final String INSERT_SQL = """
         INSERT INTO dbo.registro_prestadores
@@ -33,111 +39,241 @@ public class RegistroSstService {
         VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, GETDATE())
         """;
 
+    /**
+     * Registra las sedes SST en {@code sede_sst} y, en {@code sede_sst_servicio} y en la réplica de
+     * {@code registro_prestadores}, solo los servicios que la sede aún no tiene: volver a registrar
+     * una sede existente no duplica filas en ninguno de los dos almacenes.
+     */
     @Transactional
     public void registrarSst(RegistroSstRequest request) {
         String nombrePrestador = normalizarNombre(request.getNombrePrestador(), request.getNit());
-        for (RegistroSstRequest.SedeSst sede : request.getSedes()) {
-            String direccion = construirDireccion(sede);
-            log.info("Registrando SST - nit={}, direccion={}, depto={}, muni={}, servicios={}",
-                    request.getNit(), direccion, sede.getDepartamentoId(), sede.getMunicipioId(), sede.getServicios());
-            for (String servicio : sede.getServicios()) {
-                Object[] params = new Object[]{
+        List<Object[]> servicios = new ArrayList<>();
+        List<Object[]> filas = new ArrayList<>();
+        try {
+            // Servicios ya registrados por sede; cubre también sedes repetidas dentro de la solicitud
+            Map<Integer, Map<String, String>> existentesPorSede = new HashMap<>();
+            for (RegistroSstRequest.SedeSst sede : request.getSedes()) {
+                String direccion = construirDireccion(sede);
+                log.info("Registrando SST - nit={}, direccion={}, depto={}, muni={}, servicios={}",
+                        request.getNit(), direccion, sede.getDepartamentoId(), sede.getMunicipioId(), sede.getServicios());
+                Integer sedeId = jdbcTemplate.queryForObject(UPSERT_SEDE_SQL, Integer.class,
+                        request.getNit(), direccion, sede.getMunicipioId().trim(),
+                        sede.getDepartamentoId(), sede.getCodigoPostal(),
+                        sede.getDepartamentoId(), sede.getCodigoPostal());
+                Map<String, String> existentes = existentesPorSede.computeIfAbsent(sedeId, id -> CambiosSedeSst.normalizarServicios(
+                        jdbcTemplate.queryForList(SERVICIOS_SEDE_SQL, String.class, id)));
+
+                for (Map.Entry<String, String> servicio : CambiosSedeSst.normalizarServicios(sede.getServicios()).entrySet()) {
+                    if (existentes.putIfAbsent(servicio.getKey(), servicio.getValue()) != null) {
+                        continue;
+                    }
+                    servicios.add(new Object[]{sedeId, servicio.getValue()});
+                    filas.add(new Object[]{
+                            request.getNit(),
+                            nombrePrestador,
+                            request.getClasePrestador(),
+                            request.getTelefonoFijo(),
+                            request.getCelularAdmin(),
+                            request.getCorreoAdmin(),
+                            request.getRepresentanteLegal(),
+                            request.getCorreoRepresentante(),
+                            request.getCelularRepresentante(),
+                            direccion,
+                            sede.getDepartamentoId(),
+                            sede.getMunicipioId(),
+                            "SST",
+                            servicio.getValue(), // guardamos el nombre del servicio SST en servicio_no_reps
+                            sede.getCodigoPostal(),
+                            0,
+                            0,
+                            0,
+                            "SST"
+                    });
+                }
+            }
+            batchWriter.ejecutar(INSERTAR_SERVICIO_SQL, servicios);
+            batchWriter.ejecutar(INSERT_SQL, filas);
+            prestadorPerfil.actualizar(request.getNit());
+        } catch (DataAccessException e) {
+            log.error("Error al registrar SST para nit={}, filas={}", request.getNit(), filas.size(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al registrar servicios SST: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Clave de la dirección de una sede: la misma expresión con la que se calculan
+     * {@code sede_sst.direccion_clave} y {@code registro_prestadores.direccion_clave} (V8/V9).
+     */
+    private static final String CLAVE_DIRECCION = """
+        UPPER(REPLACE(REPLACE(REPLACE(LTRIM(RTRIM(%s)), ' ', CHAR(1) + CHAR(2)), CHAR(2) + CHAR(1), ''), CHAR(1) + CHAR(2), ' '))""";
+
+    /**
+     * Ubica la sede por id (si el cliente lo envía) o por la clave de su dirección; UPDLOCK
+     * serializa las ediciones concurrentes de la misma sede.
+     */
+    private static final String SEDE_POR_ID_SQL = """
+        SELECT id, direccion, direccion_clave, departamento, municipio, codigo_postal
+        FROM dbo.sede_sst WITH (UPDLOCK)
+        WHERE id = ? AND nit = ?
+        """;
+
+    private static final String SEDE_POR_DIRECCION_SQL = """
+        SELECT id, direccion, direccion_clave, departamento, municipio, codigo_postal
+        FROM dbo.sede_sst WITH (UPDLOCK)
+        WHERE nit = ? AND direccion_clave = %s
+        """.formatted(CLAVE_DIRECCION.formatted("?"));
+
+    private static final String UPSERT_SEDE_SQL = """
+        MERGE dbo.sede_sst WITH (HOLDLOCK) AS t
+        USING (SELECT ? AS nit, ? AS direccion, ? AS municipio) AS s
+           ON t.nit = s.nit AND t.direccion_clave = %s AND t.municipio = s.municipio
+        WHEN MATCHED THEN UPDATE SET
+            departamento = ?, codigo_postal = ?, actualizado_en = SYSDATETIME()
+        WHEN NOT MATCHED BY TARGET THEN INSERT
+            (nit, direccion, departamento, municipio, codigo_postal)
+            VALUES (s.nit, s.direccion, ?, s.municipio, ?)
+        OUTPUT inserted.id;
+        """.formatted(CLAVE_DIRECCION.formatted("s.direccion"));
+
+    private static final String SERVICIOS_SEDE_SQL = "SELECT servicio FROM dbo.sede_sst_servicio WHERE sede_id = ?";
+
+    private static final String INSERTAR_SERVICIO_SQL = "INSERT INTO dbo.sede_sst_servicio (sede_id, servicio) VALUES (?, ?)";
+
+    private static final String ELIMINAR_SERVICIO_SQL = "DELETE FROM dbo.sede_sst_servicio WHERE sede_id = ? AND servicio = ?";
+
+    private static final String ACTUALIZAR_SEDE_SQL = """
+        UPDATE dbo.sede_sst
+           SET departamento = ?, municipio = ?, codigo_postal = ?, actualizado_en = SYSDATETIME()
+        WHERE id = ?
+        """;
+
+    /**
+     * Réplica en registro_prestadores, que sigue siendo la fuente de reportes y de prestador_perfil.
+     * Las filas de la sede se ubican por direccion_clave (no por el texto exacto de una de ellas) y
+     * por el municipio anterior de la sede: la misma dirección puede existir en otro municipio.
+     */
+    private static final String ELIMINAR_SERVICIO_REGISTRO_SQL = """
+        DELETE FROM dbo.registro_prestadores
+        WHERE nit_normalizado = ?
+          AND es_sst = 1
+          AND direccion_clave = ?
+          AND EXISTS (SELECT LTRIM(RTRIM(municipio)) INTERSECT SELECT ?)
+          AND ISNULL(LTRIM(RTRIM(servicio_no_reps)), '') = ?
+        """;
+
+    // INTERSECT compara con NULL como igual: solo se tocan las filas cuya ubicación cambió
+    private static final String ACTUALIZAR_UBICACION_REGISTRO_SQL = """
+        UPDATE dbo.registro_prestadores
+           SET departamento = ?, municipio = ?, codigo_postal = ?
+        WHERE nit_normalizado = ?
+          AND es_sst = 1
+          AND direccion_clave = ?
+          AND EXISTS (SELECT LTRIM(RTRIM(municipio)) INTERSECT SELECT ?)
+          AND NOT EXISTS (SELECT departamento, municipio, codigo_postal INTERSECT SELECT ?, ?, ?)
+        """;
+
+    private static final String PERFIL_SQL = """
+        SELECT nombre_prestador, clase_prestador, telefono_fijo, celular_admin, correo_admin,
+               representante_legal, correo_representante, celular_representante
+        FROM dbo.prestador_perfil
+        WHERE nit = ?
+        """;
+
+    /**
+     * Aplica solo la diferencia entre los servicios actuales de la sede y los solicitados:
+     * borra los retirados, inserta los nuevos y actualiza la ubicación si cambia.
+     */
+    @Transactional
+    public void actualizarSede(ActualizarSedeSstRequest request) {
+        List<SedeActual> encontradas = request.getSedeId() != null
+                ? jdbcTemplate.query(SEDE_POR_ID_SQL, SEDE_ACTUAL_MAPPER, request.getSedeId(), request.getNit())
+                : jdbcTemplate.query(SEDE_POR_DIRECCION_SQL, SEDE_ACTUAL_MAPPER, request.getNit(), request.getDireccion());
+        if (encontradas.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No se encontró la sede SST indicada.");
+        }
+        if (encontradas.size() > 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "La dirección corresponde a varias sedes SST (en distintos municipios); indique sedeId.");
+        }
+        SedeActual sede = encontradas.get(0);
+
+        String departamento = request.getDepartamentoId() != null ? request.getDepartamentoId() : sede.departamento();
+        String municipio = request.getMunicipioId() != null ? request.getMunicipioId().trim() : sede.municipio();
+        String codigoPostal = request.getCodigoPostal() != null ? request.getCodigoPostal() : sede.codigoPostal();
+        CambiosSedeSst cambios = CambiosSedeSst.calcular(
+                jdbcTemplate.queryForList(SERVICIOS_SEDE_SQL, String.class, sede.id()),
+                new CambiosSedeSst.Ubicacion(sede.departamento(), sede.municipio(), sede.codigoPostal()),
+                request.getServicios(),
+                new CambiosSedeSst.Ubicacion(departamento, municipio, codigoPostal));
+        if (cambios.sinCambios()) {
+            return;
+        }
+
+        List<Object[]> eliminar = new ArrayList<>();
+        List<Object[]> eliminarRegistro = new ArrayList<>();
+        for (String servicio : cambios.eliminar()) {
+            eliminar.add(new Object[]{sede.id(), servicio});
+            eliminarRegistro.add(new Object[]{request.getNit(), sede.clave(), sede.municipio(), servicio});
+        }
+
+        List<Object[]> insertar = new ArrayList<>();
+        List<Object[]> insertarRegistro = new ArrayList<>();
+        if (!cambios.nuevos().isEmpty()) {
+            // Los datos del prestador para las filas nuevas salen del modelo de lectura por NIT
+            Map<String, Object> perfil = jdbcTemplate.queryForList(PERFIL_SQL, request.getNit()).stream()
+                    .findFirst()
+                    .orElse(Map.of());
+            String nombrePrestador = perfil.get("nombre_prestador") != null ? perfil.get("nombre_prestador").toString() : "";
+            for (String servicio : cambios.nuevos()) {
+                insertar.add(new Object[]{sede.id(), servicio});
+                insertarRegistro.add(new Object[]{
                         request.getNit(),
                         nombrePrestador,
-                        request.getClasePrestador(),
-                        request.getTelefonoFijo(),
-                        request.getCelularAdmin(),
-                        request.getCorreoAdmin(),
-                        request.getRepresentanteLegal(),
-                        request.getCorreoRepresentante(),
-                        request.getCelularRepresentante(),
-                        direccion,
-                        sede.getDepartamentoId(),
-                        sede.getMunicipioId(),
+                        perfil.getOrDefault("clase_prestador", ""),
+                        perfil.getOrDefault("telefono_fijo", ""),
+                        perfil.getOrDefault("celular_admin", ""),
+                        perfil.getOrDefault("correo_admin", ""),
+                        perfil.getOrDefault("representante_legal", ""),
+                        perfil.getOrDefault("correo_representante", ""),
+                        perfil.getOrDefault("celular_representante", ""),
+                        sede.direccion(),
+                        departamento,
+                        municipio,
                         "SST",
-                        servicio, // guardamos el nombre del servicio SST en servicio_no_reps
-                        sede.getCodigoPostal(),
+                        servicio,
+                        codigoPostal,
                         0,
                         0,
                         0,
                         "SST"
-                };
-                try {
-                    jdbcTemplate.update(INSERT_SQL, params);
-                } catch (DataAccessException e) {
-                    log.error("Error al registrar SST para nit={}, servicio={}, direccion={}", request.getNit(), servicio, direccion, e);
-                    throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al registrar servicio SST " + servicio + " para la sede " + direccion + ": " + e.getMessage(), e);
-                }
+                });
             }
         }
-    }
 
-    @Transactional
-    public void actualizarSede(ActualizarSedeSstRequest request) {
-        // Tomar muestra de la sede actual
-        String selectSql = """
-            SELECT TOP 1 *
-            FROM dbo.registro_prestadores
-            WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-              AND LTRIM(RTRIM(direccion)) = LTRIM(RTRIM(?))
-              AND (UPPER(LTRIM(RTRIM(tipo_registro))) = 'SST' OR UPPER(LTRIM(RTRIM(servicio))) = 'SST')
-            """;
-        var base = jdbcTemplate.queryForMap(selectSql, request.getNit(), request.getDireccion());
-        if (base == null || base.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No se encontró la sede SST indicada.");
+        try {
+            if (!eliminar.isEmpty()) {
+                batchWriter.ejecutar(ELIMINAR_SERVICIO_SQL, eliminar);
+                batchWriter.ejecutar(ELIMINAR_SERVICIO_REGISTRO_SQL, eliminarRegistro);
+            }
+            if (cambios.cambiaUbicacion()) {
+                jdbcTemplate.update(ACTUALIZAR_SEDE_SQL, departamento, municipio, codigoPostal, sede.id());
+                jdbcTemplate.update(ACTUALIZAR_UBICACION_REGISTRO_SQL,
+                        departamento, municipio, codigoPostal,
+                        request.getNit(), sede.clave(), sede.municipio(),
+                        departamento, municipio, codigoPostal);
+            }
+            if (!insertar.isEmpty()) {
+                batchWriter.ejecutar(INSERTAR_SERVICIO_SQL, insertar);
+                batchWriter.ejecutar(INSERT_SQL, insertarRegistro);
+            }
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Ya existe una sede SST con esa dirección en el municipio indicado.", e);
         }
+        log.info("Sede SST actualizada - nit={}, sedeId={}, servicios eliminados={}, insertados={}, ubicacion={}",
+                request.getNit(), sede.id(), eliminar.size(), insertar.size(), cambios.cambiaUbicacion());
 
-        // Borrar filas actuales de la sede
-        String deleteSql = """
-            DELETE FROM dbo.registro_prestadores
-            WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-              AND LTRIM(RTRIM(direccion)) = LTRIM(RTRIM(?))
-              AND (UPPER(LTRIM(RTRIM(tipo_registro))) = 'SST' OR UPPER(LTRIM(RTRIM(servicio))) = 'SST')
-            """;
-        jdbcTemplate.update(deleteSql, request.getNit(), request.getDireccion());
-
-        // Preparar valores base conservados
-        Object clasePrestador = base.getOrDefault("clase_prestador", "");
-        Object telefonoFijo = base.getOrDefault("telefono_fijo", "");
-        Object celularAdmin = base.getOrDefault("celular_admin", "");
-        Object correoAdmin = base.getOrDefault("correo_admin", "");
-        Object representanteLegal = base.getOrDefault("representante_legal", "");
-        Object correoRepresentante = base.getOrDefault("correo_representante", "");
-        Object celularRepresentante = base.getOrDefault("celular_representante", "");
-
-        String direccionFinal = (String) base.get("direccion"); // no cambiamos dirección en esta versión
-        String departamentoFinal = request.getDepartamentoId() != null ? request.getDepartamentoId() : (String) base.get("departamento");
-        String municipioFinal = request.getMunicipioId() != null ? request.getMunicipioId() : (String) base.get("municipio");
-        String codigoPostalFinal = request.getCodigoPostal() != null ? request.getCodigoPostal() : (String) base.get("codigo_postal");
-
-        String nombrePrestador = base.get("nombre_prestador") != null
-                ? base.get("nombre_prestador").toString()
-                : "";
-
-        for (String servicio : request.getServicios()) {
-            Object[] params = new Object[]{
-                    request.getNit(),
-                    nombrePrestador,
-                    clasePrestador,
-                    telefonoFijo,
-                    celularAdmin,
-                    correoAdmin,
-                    representanteLegal,
-                    correoRepresentante,
-                    celularRepresentante,
-                    direccionFinal,
-                    departamentoFinal,
-                    municipioFinal,
-                    "SST",
-                    servicio,
-                    codigoPostalFinal,
-                    0,
-                    0,
-                    0,
-                    "SST"
-            };
-            jdbcTemplate.update(INSERT_SQL, params);
-        }
+        prestadorPerfil.actualizar(request.getNit());
     }
 
     private String normalizarNombre(String nombreEnviado, String nit) {
@@ -149,7 +285,7 @@ public class RegistroSstService {
             String sql = """
                 SELECT TOP 1 nombre_prestador
                 FROM dbo.registro_prestadores
-                WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
+                WHERE nit_normalizado = ?
                   AND nombre_prestador IS NOT NULL
                   AND LTRIM(RTRIM(nombre_prestador)) <> ''
                 ORDER BY fecha_registro DESC
@@ -166,41 +302,55 @@ public class RegistroSstService {
     @Transactional(readOnly = true)
     public List<SedeSstDto> listarSedes(String nit) {
         String sql = """
-            SELECT
-                   LTRIM(RTRIM(direccion)) AS direccion,
-                   LTRIM(RTRIM(departamento)) AS departamento,
-                   LTRIM(RTRIM(municipio)) AS municipio,
-                   LTRIM(RTRIM(codigo_postal)) AS codigo_postal,
-                   MIN(fecha_registro) AS fecha_registro,
-                   STRING_AGG(CAST(LTRIM(RTRIM(servicio_no_reps)) AS NVARCHAR(MAX)), ', ') AS servicios_sst
-            FROM dbo.registro_prestadores
-            WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-              AND (
-                   UPPER(LTRIM(RTRIM(tipo_registro))) = 'SST'
-                OR UPPER(LTRIM(RTRIM(servicio))) = 'SST'
-              )
-            GROUP BY LTRIM(RTRIM(direccion)), LTRIM(RTRIM(departamento)), LTRIM(RTRIM(municipio)), LTRIM(RTRIM(codigo_postal))
-            ORDER BY fecha_registro DESC
+            SELECT s.id, s.direccion, s.departamento, s.municipio, s.codigo_postal, s.fecha_registro, sv.servicio
+            FROM dbo.sede_sst s
+            LEFT JOIN dbo.sede_sst_servicio sv ON sv.sede_id = s.id
+            WHERE s.nit = ?
+            ORDER BY s.fecha_registro DESC, s.id, sv.servicio
             """;
-        return jdbcTemplate.query(sql, new SedeRowMapper(), nit);
+        return jdbcTemplate.query(sql, rs -> {
+            Map<Integer, SedeSstDto> sedes = new LinkedHashMap<>();
+            Map<Integer, List<String>> servicios = new LinkedHashMap<>();
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                if (!sedes.containsKey(id)) {
+                    sedes.put(id, new SedeSstDto(
+                            id,
+                            rs.getString("direccion"),
+                            rs.getString("departamento"),
+                            rs.getString("municipio"),
+                            rs.getString("codigo_postal"),
+                            rs.getTimestamp("fecha_registro") != null ? rs.getTimestamp("fecha_registro").toLocalDateTime() : null,
+                            null));
+                    servicios.put(id, new ArrayList<>());
+                }
+                String servicio = rs.getString("servicio");
+                if (servicio != null) {
+                    servicios.get(id).add(servicio);
+                }
+            }
+            List<SedeSstDto> resultado = new ArrayList<>(sedes.size());
+            sedes.forEach((id, sede) -> resultado.add(sede.conServicios(String.join(", ", servicios.get(id)))));
+            return resultado;
+        }, nit);
     }
 
-    public record SedeSstDto(String direccion, String departamentoId, String municipioId, String codigoPostal, LocalDateTime fechaRegistro, String serviciosSst) {}
-
-    private static class SedeRowMapper implements RowMapper<SedeSstDto> {
-        @Override
-        public SedeSstDto mapRow(ResultSet rs, int rowNum) throws SQLException {
-            return new SedeSstDto(
-                    rs.getString("direccion"),
-                    rs.getString("departamento"),
-                    rs.getString("municipio"),
-                    rs.getString("codigo_postal"),
-                    rs.getTimestamp("fecha_registro") != null ? rs.getTimestamp("fecha_registro").toLocalDateTime() : null,
-                    rs.getString("servicios_sst")
-            );
+    public record SedeSstDto(Integer id, String direccion, String departamentoId, String municipioId, String codigoPostal, LocalDateTime fechaRegistro, String serviciosSst) {
+        SedeSstDto conServicios(String servicios) {
+            return new SedeSstDto(id, direccion, departamentoId, municipioId, codigoPostal, fechaRegistro, servicios);
         }
     }
 
+    private record SedeActual(int id, String direccion, String clave, String departamento, String municipio, String codigoPostal) {}
+
+    private static final RowMapper<SedeActual> SEDE_ACTUAL_MAPPER = (rs, rowNum) -> new SedeActual(
+            rs.getInt("id"),
+            rs.getString("direccion"),
+            rs.getString("direccion_clave"),
+            rs.getString("departamento"),
+            rs.getString("municipio"),
+            rs.getString("codigo_postal"));
+
     private String construirDireccion(RegistroSstRequest.SedeSst sede) {
         StringBuilder dir = new StringBuilder();
         dir.append(sede.getTipoVia()).append(" ").append(sede.getNumeroVia());
@@ -17,11 +17,12 @@ import java.util.Optional;
 public class RepresentanteService {
 
     private final JdbcTemplate jdbcTemplate;
+    private final PrestadorPerfilService prestadorPerfil;
 
     @Transactional(readOnly = true)
     public Optional<RepresentanteResponse> obtenerPorNit(String nit) {
         String sql = """
-            SELECT TOP 1
+            SELECT
                 nombre_prestador,
                 clase_prestador,
                 telefono_fijo,
@@ -30,9 +31,8 @@ public class RepresentanteService {
                 representante_legal,
                 correo_representante,
                 celular_representante
-            FROM dbo.registro_prestadores
-            WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
-            ORDER BY fecha_registro DESC
+            FROM dbo.prestador_perfil
+            WHERE nit = ?
             """;
         return jdbcTemplate.query(sql, rs -> {
             if (rs.next()) {
@@ -63,7 +63,7 @@ public class RepresentanteService {
                 representante_legal = ?,
                 correo_representante = ?,
                 celular_representante = ?
-            WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
+            WHERE nit_normalizado = ?
             """;
         try {
             jdbcTemplate.update(sql,
@@ -76,6 +76,7 @@ public class RepresentanteService {
                     request.getCorreoRepresentante(),
                     request.getCelularRepresentante(),
                     request.getNit());
+            prestadorPerfil.actualizar(request.getNit());
         } catch (DataAccessException e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al actualizar datos del representante legal", e);
         }
@@ -89,7 +90,7 @@ public class RepresentanteService {
                 correo_representante = ?,
                 celular_representante = ?,
                 correo_admin = ?
-            WHERE LTRIM(RTRIM(nit)) = LTRIM(RTRIM(?))
+            WHERE nit_normalizado = ?
             """;
         try {
             jdbcTemplate.update(sql,
@@ -98,6 +99,7 @@ public class RepresentanteService {
                     celularRepresentante,
                     correoAdmin,
                     nit);
+            prestadorPerfil.actualizar(nit);
         } catch (DataAccessException e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al actualizar datos del representante legal", e);
         }
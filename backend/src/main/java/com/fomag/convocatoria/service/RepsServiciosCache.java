@@ -0,0 +1,56 @@
+package com.fomag.convocatoria.service;
+
+import com.fomag.convocatoria.api.dto.ServicioDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Snapshot por NIT de los servicios REPS (sedes + servicios habilitados). Los datos REPS solo
+ * cambian cuando se recargan las tablas de referencia, momento en el que se debe invalidar
+ * con {@link #invalidarTodo()} (expuesto en el endpoint de actuator {@code repscache}).
+ */
+@Component
+public class RepsServiciosCache {
+
+    private final Cache<String, List<ServicioDto>> cache;
+    private final Timer tiempoCarga;
+
+    public RepsServiciosCache(@Value("${reps.cache.max-size:5000}") long tamanoMaximo,
+                              @Value("${reps.cache.ttl-minutes:360}") long ttlMinutos,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutos))
+                .recordStats()
+                .build();
+        this.tiempoCarga = Timer.builder("reps.servicios.carga")
+                .description("Tiempo de carga del catálogo REPS de un NIT desde la base de datos")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reps.servicios");
+    }
+
+    public List<ServicioDto> obtener(String nit, Function<String, List<ServicioDto>> cargador) {
+        return cache.get(nit, clave -> tiempoCarga.record(() -> List.copyOf(cargador.apply(clave))));
+    }
+
+    public void invalidar(String nit) {
+        cache.invalidate(nit);
+    }
+
+    public void invalidarTodo() {
+        cache.invalidateAll();
+    }
+
+    public long tamano() {
+        return cache.estimatedSize();
+    }
+}
@@ -3,6 +3,7 @@ package com.fomag.convocatoria.service;
 import com.fomag.convocatoria.api.dto.DireccionServiciosDto;
 import com.fomag.convocatoria.api.dto.RegistroServiciosRequest;
 import com.fomag.convocatoria.api.dto.ServicioDto;
+import com.fomag.convocatoria.persistence.JdbcBatchWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -22,6 +23,9 @@ import java.util.stream.Collectors;
 public class ServiciosService {
 
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcBatchWriter batchWriter;
+    private final RepsServiciosCache repsServiciosCache;
+    private final PrestadorPerfilService prestadorPerfil;
 
     private static final String CONSULTA_SERVICIOS = """
             select distinct
@@ -47,13 +51,14 @@ public class ServiciosService {
 
     @Transactional(readOnly = true)
     public List<DireccionServiciosDto> obtenerServiciosPorNit(String nit) {
-        // Servicios del REPS
-        List<ServicioDto> flat = jdbcTemplate.query(CONSULTA_SERVICIOS, new ServicioMapper(), nit);
+        // Servicios del REPS (snapshot en caché; solo cambia al recargar las tablas REPS)
+        List<ServicioDto> flat = repsServiciosCache.obtener(nit,
+                clave -> jdbcTemplate.query(CONSULTA_SERVICIOS, new ServicioMapper(), clave));
 
-        // Servicios ya registrados en nuestra tabla
+        // Servicios ya registrados en nuestra tabla (siempre frescos)
         Set<String> registrados = new HashSet<>();
         List<Map<String, Object>> filas = jdbcTemplate.queryForList(
-                "SELECT LTRIM(RTRIM(cod_habilitacion)) AS cod_habilitacion, LTRIM(RTRIM(servicio)) AS servicio FROM dbo.registro_prestadores WHERE nit = ?",
+                "SELECT LTRIM(RTRIM(cod_habilitacion)) AS cod_habilitacion, LTRIM(RTRIM(servicio)) AS servicio FROM dbo.registro_prestadores WHERE nit_normalizado = ?",
                 nit
         );
         for (Map<String, Object> fila : filas) {
@@ -99,8 +104,9 @@ public class ServiciosService {
             VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, GETDATE())
             """;
 
+        List<Object[]> filas = new ArrayList<>();
         for (RegistroServiciosRequest.ServicioPayload servicio : request.getServicios()) {
-            Object[] params = new Object[]{
+            filas.add(new Object[]{
                     request.getNit(),
                     request.getNombre(),
                     request.getClasePrestador(),
@@ -115,12 +121,13 @@ public class ServiciosService {
                     servicio.getDepartamento(),
                     servicio.getMunicipio(),
                     servicio.getCodigo()
-            };
-            try {
-                jdbcTemplate.update(insertSql, params);
-            } catch (DataAccessException e) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al insertar servicio", e);
-            }
+            });
+        }
+        try {
+            batchWriter.ejecutar(insertSql, filas);
+            prestadorPerfil.actualizar(request.getNit());
+        } catch (DataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al insertar servicio", e);
         }
     }
 
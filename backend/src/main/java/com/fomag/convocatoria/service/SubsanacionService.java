@@ -123,7 +123,7 @@ public class SubsanacionService {
     private boolean esPrimeraEtapa(String nit) {
         try {
             LocalDateTime fecha = jdbcTemplate.queryForObject(
-                    "SELECT TOP 1 fecha_registro FROM dbo.registro_prestadores WHERE nit = ? ORDER BY fecha_registro DESC",
+                    "SELECT TOP 1 fecha_registro FROM dbo.registro_prestadores WHERE nit_normalizado = ? ORDER BY fecha_registro DESC",
                     LocalDateTime.class,
                     nit
             );
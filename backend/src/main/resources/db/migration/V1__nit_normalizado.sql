@@ -0,0 +1,32 @@
+-- NIT normalizado como columna calculada persistida.
+-- Las consultas filtran por nit_normalizado = ? (el NIT ya llega normalizado
+-- desde NitNormalizer), de modo que SQL Server puede hacer seek sobre el índice
+-- en lugar de evaluar LTRIM(RTRIM(nit)) fila por fila.
+
+IF COL_LENGTH('dbo.registro_prestadores', 'nit_normalizado') IS NULL
+    ALTER TABLE dbo.registro_prestadores
+        ADD nit_normalizado AS LTRIM(RTRIM(nit)) PERSISTED;
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_registro_prestadores_nit_normalizado'
+                 AND object_id = OBJECT_ID('dbo.registro_prestadores'))
+    CREATE NONCLUSTERED INDEX IX_registro_prestadores_nit_normalizado
+        ON dbo.registro_prestadores (nit_normalizado, fecha_registro DESC)
+        INCLUDE (nombre_prestador, clase_prestador, telefono_fijo, celular_admin, correo_admin,
+                 representante_legal, correo_representante, celular_representante,
+                 cod_habilitacion, tipo_registro, servicio);
+GO
+
+IF COL_LENGTH('dbo.AtencionUsuarios', 'nit_normalizado') IS NULL
+    ALTER TABLE dbo.AtencionUsuarios
+        ADD nit_normalizado AS LTRIM(RTRIM(nit)) PERSISTED,
+            cod_habilitacion_normalizado AS LTRIM(RTRIM(cod_habilitacion)) PERSISTED;
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_AtencionUsuarios_nit_cod_normalizado'
+                 AND object_id = OBJECT_ID('dbo.AtencionUsuarios'))
+    CREATE NONCLUSTERED INDEX IX_AtencionUsuarios_nit_cod_normalizado
+        ON dbo.AtencionUsuarios (nit_normalizado, cod_habilitacion_normalizado, id DESC);
+GO
@@ -0,0 +1,20 @@
+-- Desafíos y tokens de recuperación de clave compartidos entre instancias
+-- (acceso.recuperacion.store=jdbc). Las filas vencidas las elimina RecuperacionStoreJdbc.
+
+IF OBJECT_ID('dbo.acceso_recuperacion') IS NULL
+    CREATE TABLE dbo.acceso_recuperacion (
+        clave          VARCHAR(64)    NOT NULL,
+        tipo           VARCHAR(10)    NOT NULL,
+        nit            VARCHAR(20)    NOT NULL,
+        representante  NVARCHAR(300)  NULL,
+        correo         NVARCHAR(300)  NULL,
+        celular        NVARCHAR(50)   NULL,
+        correo_admin   NVARCHAR(300)  NULL,
+        expira         DATETIME2      NOT NULL,
+        CONSTRAINT PK_acceso_recuperacion PRIMARY KEY (clave, tipo)
+    );
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_acceso_recuperacion_expira' AND object_id = OBJECT_ID('dbo.acceso_recuperacion'))
+    CREATE INDEX IX_acceso_recuperacion_expira ON dbo.acceso_recuperacion (expira);
+GO
@@ -0,0 +1,34 @@
+-- Modelo de lectura con una fila por NIT: datos de contacto del último registro en
+-- registro_prestadores. Lo mantiene PrestadorPerfilService en cada escritura.
+
+IF OBJECT_ID('dbo.prestador_perfil') IS NULL
+    CREATE TABLE dbo.prestador_perfil (
+        nit                    VARCHAR(20)    NOT NULL,
+        nombre_prestador       NVARCHAR(300)  NULL,
+        clase_prestador        NVARCHAR(100)  NULL,
+        telefono_fijo          NVARCHAR(50)   NULL,
+        celular_admin          NVARCHAR(50)   NULL,
+        correo_admin           NVARCHAR(300)  NULL,
+        representante_legal    NVARCHAR(300)  NULL,
+        correo_representante   NVARCHAR(300)  NULL,
+        celular_representante  NVARCHAR(50)   NULL,
+        fecha_registro         DATETIME2      NULL,
+        actualizado_en         DATETIME2      NOT NULL CONSTRAINT DF_prestador_perfil_actualizado DEFAULT SYSDATETIME(),
+        CONSTRAINT PK_prestador_perfil PRIMARY KEY (nit)
+    );
+GO
+
+-- Carga inicial desde el histórico
+INSERT INTO dbo.prestador_perfil
+    (nit, nombre_prestador, clase_prestador, telefono_fijo, celular_admin, correo_admin,
+     representante_legal, correo_representante, celular_representante, fecha_registro)
+SELECT nit_normalizado, nombre_prestador, clase_prestador, telefono_fijo, celular_admin, correo_admin,
+       representante_legal, correo_representante, celular_representante, fecha_registro
+FROM (
+    SELECT rp.*, ROW_NUMBER() OVER (PARTITION BY rp.nit_normalizado ORDER BY rp.fecha_registro DESC) AS rn
+    FROM dbo.registro_prestadores rp
+    WHERE rp.nit_normalizado IS NOT NULL
+) ultimo
+WHERE ultimo.rn = 1
+  AND NOT EXISTS (SELECT 1 FROM dbo.prestador_perfil p WHERE p.nit = ultimo.nit_normalizado);
+GO
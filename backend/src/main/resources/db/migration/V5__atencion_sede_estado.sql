@@ -0,0 +1,18 @@
+-- Estado de diligenciamiento por sede (SIN_DILIGENCIAR / COMPLETA), calculado al escribir en
+-- AtencionUsuarios a partir de su fila más reciente. Las sedes sin fila aquí son SEDE_NUEVA.
+-- Las filas existentes se cargan con el backfill de AtencionEstadoService
+-- (POST /actuator/atencionestado o atencion.estado.backfill-on-startup=true).
+
+IF OBJECT_ID('dbo.atencion_sede_estado') IS NULL
+    CREATE TABLE dbo.atencion_sede_estado (
+        nit               VARCHAR(20)    NOT NULL,
+        cod_habilitacion  VARCHAR(50)    NOT NULL,
+        atencion_id       INT            NOT NULL,
+        direccion         NVARCHAR(500)  NULL,
+        departamento      NVARCHAR(100)  NULL,
+        municipio         NVARCHAR(100)  NULL,
+        estado            VARCHAR(20)    NOT NULL,
+        actualizado_en    DATETIME2      NOT NULL CONSTRAINT DF_atencion_sede_estado_actualizado DEFAULT SYSDATETIME(),
+        CONSTRAINT PK_atencion_sede_estado PRIMARY KEY (nit, cod_habilitacion)
+    );
+GO
@@ -0,0 +1,6 @@
+-- Concurrencia optimista en AtencionService.guardar: la fila actual de cada sede lleva un
+-- ROWVERSION que se compara al actualizar. La unicidad por sede y el historial van en V7.
+
+IF COL_LENGTH('dbo.AtencionUsuarios', 'version') IS NULL
+    ALTER TABLE dbo.AtencionUsuarios ADD version ROWVERSION;
+GO
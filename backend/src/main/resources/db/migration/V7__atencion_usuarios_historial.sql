@@ -0,0 +1,93 @@
+-- AtencionUsuarios queda solo con la fila actual de cada (nit, cod_habilitacion); las versiones
+-- anteriores pasan a AtencionUsuarios_historial (solo inserción).
+--  * AtencionService.guardar copia la fila actual al historial antes de actualizarla.
+--  * AtencionUsuariosService.registrar mueve la fila actual al historial antes de insertar la nueva.
+--  * Los duplicados existentes (todas las filas de una sede salvo la de mayor id) se mueven por
+--    lotes y luego se crea el índice único por sede.
+-- Se ejecuta fuera de transacción (V7__atencion_usuarios_historial.sql.conf): cada lote confirma
+-- por separado y todos los pasos se pueden repetir, así que si se interrumpe basta con volver a
+-- ejecutarla (flyway repair + migrate) y continúa donde quedó.
+
+-- Mismos tipos que AtencionUsuarios; id + 0 evita heredar la propiedad IDENTITY
+IF OBJECT_ID('dbo.AtencionUsuarios_historial', 'U') IS NULL
+    SELECT TOP (0)
+        atencion_id = id + 0,
+        nit, cod_habilitacion, direccion, departamento, municipio, mecanismo_citas,
+        correo_autorizado, telefono_fijo, celular, horario_desde, horario_hasta,
+        whatsapp, horario_whatsapp_desde, horario_whatsapp_hasta, linea_telefonica,
+        horario_telefono_desde, horario_telefono_hasta, pagina_web, correo_no_presencial,
+        nombre_coordinador, telefono_coordinador, correo_coordinador,
+        nombre_gerente, correo_gerente, celular_gerente,
+        correo_administrativo, telefono_administrativo, celular_administrativo,
+        Ambulatorio, Hospitalario, Domiciliario, Transporte, Insumos,
+        Servicio_Exclusivo, Servicio_Agenda, Servicio_Franjas, fecha_registro
+    INTO dbo.AtencionUsuarios_historial
+    FROM dbo.AtencionUsuarios;
+GO
+
+IF COL_LENGTH('dbo.AtencionUsuarios_historial', 'historial_id') IS NULL
+    ALTER TABLE dbo.AtencionUsuarios_historial ADD
+        historial_id BIGINT IDENTITY(1, 1) NOT NULL
+            CONSTRAINT PK_AtencionUsuarios_historial PRIMARY KEY,
+        archivado_en DATETIME2(0) NOT NULL
+            CONSTRAINT DF_AtencionUsuarios_historial_archivado_en DEFAULT SYSDATETIME(),
+        nit_normalizado AS LTRIM(RTRIM(nit)) PERSISTED,
+        cod_habilitacion_normalizado AS LTRIM(RTRIM(cod_habilitacion)) PERSISTED;
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_AtencionUsuarios_historial_sede'
+                 AND object_id = OBJECT_ID('dbo.AtencionUsuarios_historial'))
+    CREATE NONCLUSTERED INDEX IX_AtencionUsuarios_historial_sede
+        ON dbo.AtencionUsuarios_historial (nit_normalizado, cod_habilitacion_normalizado, historial_id DESC);
+GO
+
+-- Duplicados: cada DELETE ... OUTPUT INTO confirma por sí solo (sin transacción envolvente), de modo
+-- que los bloqueos y el log activo se limitan a 5000 filas. Sin duplicados el primer lote no borra
+-- nada, así que el bloque puede repetirse.
+BEGIN
+    DECLARE @movidas INT = 1;
+    WHILE @movidas > 0
+    BEGIN
+        WITH anteriores AS (
+            SELECT au.*,
+                   ROW_NUMBER() OVER (PARTITION BY au.nit_normalizado, au.cod_habilitacion_normalizado
+                                      ORDER BY au.id DESC) AS rn
+            FROM dbo.AtencionUsuarios au
+        )
+        DELETE TOP (5000) FROM anteriores
+        OUTPUT
+            deleted.id, deleted.nit, deleted.cod_habilitacion, deleted.direccion, deleted.departamento,
+            deleted.municipio, deleted.mecanismo_citas, deleted.correo_autorizado, deleted.telefono_fijo,
+            deleted.celular, deleted.horario_desde, deleted.horario_hasta, deleted.whatsapp,
+            deleted.horario_whatsapp_desde, deleted.horario_whatsapp_hasta, deleted.linea_telefonica,
+            deleted.horario_telefono_desde, deleted.horario_telefono_hasta, deleted.pagina_web,
+            deleted.correo_no_presencial, deleted.nombre_coordinador, deleted.telefono_coordinador,
+            deleted.correo_coordinador, deleted.nombre_gerente, deleted.correo_gerente, deleted.celular_gerente,
+            deleted.correo_administrativo, deleted.telefono_administrativo, deleted.celular_administrativo,
+            deleted.Ambulatorio, deleted.Hospitalario, deleted.Domiciliario, deleted.Transporte, deleted.Insumos,
+            deleted.Servicio_Exclusivo, deleted.Servicio_Agenda, deleted.Servicio_Franjas, deleted.fecha_registro
+        INTO dbo.AtencionUsuarios_historial (
+            atencion_id, nit, cod_habilitacion, direccion, departamento,
+            municipio, mecanismo_citas, correo_autorizado, telefono_fijo,
+            celular, horario_desde, horario_hasta, whatsapp,
+            horario_whatsapp_desde, horario_whatsapp_hasta, linea_telefonica,
+            horario_telefono_desde, horario_telefono_hasta, pagina_web,
+            correo_no_presencial, nombre_coordinador, telefono_coordinador,
+            correo_coordinador, nombre_gerente, correo_gerente, celular_gerente,
+            correo_administrativo, telefono_administrativo, celular_administrativo,
+            Ambulatorio, Hospitalario, Domiciliario, Transporte, Insumos,
+            Servicio_Exclusivo, Servicio_Agenda, Servicio_Franjas, fecha_registro)
+        WHERE rn > 1;
+        SET @movidas = @@ROWCOUNT;
+    END
+END;
+GO
+
+-- Con una sola fila por sede, el índice único va directo sobre la clave normalizada
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'UX_AtencionUsuarios_sede'
+                 AND object_id = OBJECT_ID('dbo.AtencionUsuarios'))
+    CREATE UNIQUE NONCLUSTERED INDEX UX_AtencionUsuarios_sede
+        ON dbo.AtencionUsuarios (nit_normalizado, cod_habilitacion_normalizado);
+GO
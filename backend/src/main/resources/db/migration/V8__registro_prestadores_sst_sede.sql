@@ -0,0 +1,27 @@
+-- Ubicación de las filas SST de una sede con predicados indexables.
+--  * es_sst reemplaza UPPER(LTRIM(RTRIM(...))) = 'SST' sobre tipo_registro/servicio.
+--  * direccion_clave es la dirección en mayúsculas, sin espacios extremos y con un solo espacio
+--    entre componentes; es la misma expresión que dbo.sede_sst.direccion_clave (V9), de modo que
+--    las filas de una sede se ubican por su clave sin importar diferencias de espacios o mayúsculas.
+-- Leer o editar una sede hace seek sobre (nit_normalizado, es_sst, direccion_clave).
+
+IF COL_LENGTH('dbo.registro_prestadores', 'es_sst') IS NULL
+    ALTER TABLE dbo.registro_prestadores
+        ADD es_sst AS CAST(CASE WHEN UPPER(LTRIM(RTRIM(tipo_registro))) = 'SST'
+                                  OR UPPER(LTRIM(RTRIM(servicio))) = 'SST'
+                                THEN 1 ELSE 0 END AS BIT) PERSISTED;
+GO
+
+IF COL_LENGTH('dbo.registro_prestadores', 'direccion_clave') IS NULL
+    ALTER TABLE dbo.registro_prestadores
+        ADD direccion_clave AS UPPER(REPLACE(REPLACE(REPLACE(LTRIM(RTRIM(direccion)),
+                ' ', CHAR(1) + CHAR(2)), CHAR(2) + CHAR(1), ''), CHAR(1) + CHAR(2), ' ')) PERSISTED;
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_registro_prestadores_sst_sede'
+                 AND object_id = OBJECT_ID('dbo.registro_prestadores'))
+    CREATE NONCLUSTERED INDEX IX_registro_prestadores_sst_sede
+        ON dbo.registro_prestadores (nit_normalizado, es_sst, direccion_clave)
+        INCLUDE (servicio_no_reps, departamento, municipio, codigo_postal, fecha_registro);
+GO
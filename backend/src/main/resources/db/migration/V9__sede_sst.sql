@@ -0,0 +1,92 @@
+-- Sedes SST normalizadas: una fila por sede en sede_sst (id sustituto) y una por servicio en
+-- sede_sst_servicio. direccion_clave se calcula en la base con la misma expresión que
+-- registro_prestadores.direccion_clave (V8): las dos tablas comparten la clave de la sede.
+-- registro_prestadores sigue recibiendo las filas SST para los reportes y prestador_perfil.
+
+IF OBJECT_ID('dbo.sede_sst') IS NULL
+    CREATE TABLE dbo.sede_sst (
+        id               INT IDENTITY(1, 1) NOT NULL CONSTRAINT PK_sede_sst PRIMARY KEY,
+        nit              VARCHAR(20)    NOT NULL,
+        direccion        NVARCHAR(300)  NOT NULL,
+        direccion_clave  AS UPPER(REPLACE(REPLACE(REPLACE(LTRIM(RTRIM(direccion)),
+                             ' ', CHAR(1) + CHAR(2)), CHAR(2) + CHAR(1), ''), CHAR(1) + CHAR(2), ' ')) PERSISTED,
+        departamento     NVARCHAR(50)   NULL,
+        municipio        NVARCHAR(50)   NULL,
+        codigo_postal    NVARCHAR(20)   NULL,
+        fecha_registro   DATETIME2      NOT NULL CONSTRAINT DF_sede_sst_fecha_registro DEFAULT SYSDATETIME(),
+        actualizado_en   DATETIME2      NOT NULL CONSTRAINT DF_sede_sst_actualizado DEFAULT SYSDATETIME()
+    );
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'UX_sede_sst_nit_direccion'
+                 AND object_id = OBJECT_ID('dbo.sede_sst'))
+    CREATE UNIQUE NONCLUSTERED INDEX UX_sede_sst_nit_direccion
+        ON dbo.sede_sst (nit, direccion_clave, municipio)
+        INCLUDE (direccion, departamento, codigo_postal, fecha_registro);
+GO
+
+IF OBJECT_ID('dbo.sede_sst_servicio') IS NULL
+    CREATE TABLE dbo.sede_sst_servicio (
+        sede_id          INT            NOT NULL
+            CONSTRAINT FK_sede_sst_servicio_sede REFERENCES dbo.sede_sst (id) ON DELETE CASCADE,
+        servicio         NVARCHAR(300)  NOT NULL,
+        fecha_registro   DATETIME2      NOT NULL CONSTRAINT DF_sede_sst_servicio_fecha DEFAULT SYSDATETIME(),
+        CONSTRAINT PK_sede_sst_servicio PRIMARY KEY (sede_id, servicio)
+    );
+GO
+
+-- Carga inicial: una sede por (nit, dirección normalizada, municipio), con la ubicación de su
+-- fila más reciente
+WITH filas AS (
+    SELECT
+        nit = rp.nit_normalizado,
+        direccion = LTRIM(RTRIM(rp.direccion)),
+        clave = rp.direccion_clave,
+        departamento = LTRIM(RTRIM(rp.departamento)),
+        municipio = LTRIM(RTRIM(rp.municipio)),
+        codigo_postal = LTRIM(RTRIM(rp.codigo_postal)),
+        rp.fecha_registro
+    FROM dbo.registro_prestadores rp
+    WHERE rp.es_sst = 1
+      AND rp.nit_normalizado IS NOT NULL
+      AND NULLIF(rp.direccion_clave, '') IS NOT NULL
+)
+INSERT INTO dbo.sede_sst (nit, direccion, departamento, municipio, codigo_postal, fecha_registro)
+SELECT x.nit, x.direccion, x.departamento, x.municipio, x.codigo_postal, ISNULL(x.primera, SYSDATETIME())
+FROM (
+    SELECT f.*,
+           rn = ROW_NUMBER() OVER (PARTITION BY f.nit, f.clave, f.municipio ORDER BY f.fecha_registro DESC),
+           primera = MIN(f.fecha_registro) OVER (PARTITION BY f.nit, f.clave, f.municipio)
+    FROM filas f
+) x
+WHERE x.rn = 1
+  AND NOT EXISTS (SELECT 1 FROM dbo.sede_sst s
+                  WHERE s.nit = x.nit
+                    AND s.direccion_clave = x.clave
+                    AND EXISTS (SELECT s.municipio INTERSECT SELECT x.municipio));
+GO
+
+WITH filas AS (
+    SELECT
+        nit = rp.nit_normalizado,
+        clave = rp.direccion_clave,
+        municipio = LTRIM(RTRIM(rp.municipio)),
+        servicio = LTRIM(RTRIM(rp.servicio_no_reps)),
+        rp.fecha_registro
+    FROM dbo.registro_prestadores rp
+    WHERE rp.es_sst = 1
+      AND rp.nit_normalizado IS NOT NULL
+      AND NULLIF(rp.direccion_clave, '') IS NOT NULL
+      AND NULLIF(LTRIM(RTRIM(rp.servicio_no_reps)), '') IS NOT NULL
+)
+INSERT INTO dbo.sede_sst_servicio (sede_id, servicio, fecha_registro)
+SELECT s.id, f.servicio, ISNULL(MIN(f.fecha_registro), SYSDATETIME())
+FROM filas f
+INNER JOIN dbo.sede_sst s
+    ON s.nit = f.nit
+   AND s.direccion_clave = f.clave
+   AND EXISTS (SELECT s.municipio INTERSECT SELECT f.municipio)
+WHERE NOT EXISTS (SELECT 1 FROM dbo.sede_sst_servicio sv WHERE sv.sede_id = s.id AND sv.servicio = f.servicio)
+GROUP BY s.id, f.servicio;
+GO
@@ -0,0 +1,132 @@
+package com.fomag.convocatoria.service;
+
+import com.fomag.convocatoria.api.dto.AtencionUsuariosRequest;
+import com.fomag.convocatoria.persistence.JdbcBatchWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class AtencionUsuariosServiceTest {
+
+    private static final int SOLICITUDES_PARALELAS = 50;
+
+    private JdbcTemplate jdbcTemplate;
+    private String nit;
+
+    @Test
+    void registroDuplicadoRespondeConflicto() {
+        JdbcBatchWriter batchWriter = mock(JdbcBatchWriter.class);
+        doThrow(new DuplicateKeyException("UX_AtencionUsuarios_sede"))
+                .when(batchWriter).ejecutar(contains("INSERT INTO AtencionUsuarios"), anyList());
+        AtencionUsuariosService service = new AtencionUsuariosService(batchWriter,
+                mock(AtencionEstadoService.class), mock(AtencionHistorialService.class));
+
+        assertThatThrownBy(() -> service.registrar(solicitud("900123456", "0500100001")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    /**
+     * 50 registros simultáneos de la misma sede contra SQL Server (migraciones aplicadas). Cada uno
+     * termina en 200 o en 409; al final queda una sola fila actual y las demás registradas con
+     * éxito están en el historial. Requiere {@code CONVOCATORIA_TEST_DB_URL} (y usuario/clave).
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "CONVOCATORIA_TEST_DB_URL", matches = ".+")
+    void registrosParalelosDeLaMismaSedeDejanUnaSolaFila() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getenv("CONVOCATORIA_TEST_DB_URL"),
+                System.getenv("CONVOCATORIA_TEST_DB_USER"),
+                System.getenv("CONVOCATORIA_TEST_DB_PASSWORD"));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        JdbcBatchWriter batchWriter = new JdbcBatchWriter(jdbcTemplate, 500);
+        AtencionUsuariosService service = new AtencionUsuariosService(batchWriter,
+                mock(AtencionEstadoService.class), new AtencionHistorialService(jdbcTemplate, batchWriter));
+
+        nit = "T" + ThreadLocalRandom.current().nextLong(100_000_000L, 999_999_999L);
+        String cod = "0500100001";
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(SOLICITUDES_PARALELAS);
+        List<Future<HttpStatus>> resultados = new ArrayList<>();
+        try {
+            for (int i = 0; i < SOLICITUDES_PARALELAS; i++) {
+                resultados.add(executor.submit(() -> {
+                    salida.await();
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> service.registrar(solicitud(nit, cod)));
+                        return HttpStatus.OK;
+                    } catch (ResponseStatusException e) {
+                        return HttpStatus.valueOf(e.getStatusCode().value());
+                    }
+                }));
+            }
+            salida.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        }
+
+        long exitosos = 0;
+        for (Future<HttpStatus> resultado : resultados) {
+            HttpStatus status = resultado.get();
+            assertThat(status).isIn(HttpStatus.OK, HttpStatus.CONFLICT);
+            if (status == HttpStatus.OK) {
+                exitosos++;
+            }
+        }
+        assertThat(exitosos).isPositive();
+        assertThat(contar("AtencionUsuarios", cod)).isEqualTo(1);
+        assertThat(contar("AtencionUsuarios_historial", cod)).isEqualTo(exitosos - 1);
+    }
+
+    @AfterEach
+    void limpiar() {
+        if (jdbcTemplate != null && nit != null) {
+            jdbcTemplate.update("DELETE FROM dbo.AtencionUsuarios WHERE nit = ?", nit);
+            jdbcTemplate.update("DELETE FROM dbo.AtencionUsuarios_historial WHERE nit = ?", nit);
+        }
+    }
+
+    private long contar(String tabla, String cod) {
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM dbo." + tabla + " WHERE nit = ? AND cod_habilitacion = ?", Long.class, nit, cod);
+        return total == null ? 0 : total;
+    }
+
+    private static AtencionUsuariosRequest solicitud(String nit, String cod) {
+        AtencionUsuariosRequest.SedeRequest sede = new AtencionUsuariosRequest.SedeRequest();
+        sede.setCodHabilitacion(cod);
+        sede.setDireccion("CALLE 1 # 2-3");
+        sede.setDepartamento("05");
+        sede.setMunicipio("05001");
+        sede.setMecanismoCitas("Telefonico");
+        AtencionUsuariosRequest request = new AtencionUsuariosRequest();
+        request.setNit(nit);
+        request.setSedes(List.of(sede));
+        return request;
+    }
+}
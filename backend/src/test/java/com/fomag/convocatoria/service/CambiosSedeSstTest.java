@@ -0,0 +1,70 @@
+package com.fomag.convocatoria.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CambiosSedeSstTest {
+
+    private static final CambiosSedeSst.Ubicacion MEDELLIN = new CambiosSedeSst.Ubicacion("05", "05001", "050001");
+
+    @Test
+    void separaServiciosRetiradosNuevosYSinCambio() {
+        CambiosSedeSst cambios = CambiosSedeSst.calcular(
+                List.of("Medicina laboral", "Psicología", "Audiometría"), MEDELLIN,
+                List.of("Psicología", "Optometría"), MEDELLIN);
+
+        assertThat(cambios.eliminar()).containsExactly("Medicina laboral", "Audiometría");
+        assertThat(cambios.nuevos()).containsExactly("Optometría");
+        assertThat(cambios.cambiaUbicacion()).isFalse();
+        assertThat(cambios.sinCambios()).isFalse();
+    }
+
+    @Test
+    void comparaServiciosSinMayusculasNiEspaciosYDescartaVaciosYRepetidos() {
+        CambiosSedeSst cambios = CambiosSedeSst.calcular(
+                List.of("Psicología", "Audiometría"), MEDELLIN,
+                Arrays.asList("  PSICOLOGÍA ", "audiometría", "", null, "Audiometría"), MEDELLIN);
+
+        assertThat(cambios.eliminar()).isEmpty();
+        assertThat(cambios.nuevos()).isEmpty();
+        assertThat(cambios.sinCambios()).isTrue();
+    }
+
+    @Test
+    void conservaElTextoGuardadoParaRetirarYElSolicitadoParaInsertar() {
+        CambiosSedeSst cambios = CambiosSedeSst.calcular(
+                List.of(" Medicina Laboral "), MEDELLIN,
+                List.of(" Optometría "), MEDELLIN);
+
+        assertThat(cambios.eliminar()).containsExactly("Medicina Laboral");
+        assertThat(cambios.nuevos()).containsExactly("Optometría");
+    }
+
+    @Test
+    void detectaCambioDeUbicacionSinCambiosDeServicios() {
+        CambiosSedeSst cambios = CambiosSedeSst.calcular(
+                List.of("Psicología"), MEDELLIN,
+                List.of("Psicología"), new CambiosSedeSst.Ubicacion("05", "05088", "051050"));
+
+        assertThat(cambios.eliminar()).isEmpty();
+        assertThat(cambios.nuevos()).isEmpty();
+        assertThat(cambios.cambiaUbicacion()).isTrue();
+        assertThat(cambios.sinCambios()).isFalse();
+    }
+
+    @Test
+    void codigoPostalAusenteEnAmbosLadosNoEsCambio() {
+        CambiosSedeSst.Ubicacion sinCodigo = new CambiosSedeSst.Ubicacion("05", "05001", null);
+
+        CambiosSedeSst cambios = CambiosSedeSst.calcular(
+                List.of("Psicología"), sinCodigo,
+                List.of("Psicología"), new CambiosSedeSst.Ubicacion("05", "05001", null));
+
+        assertThat(cambios.cambiaUbicacion()).isFalse();
+        assertThat(cambios.sinCambios()).isTrue();
+    }
+}
@@ -0,0 +1,153 @@
+package com.fomag.convocatoria.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PagosServiceExportTest {
+
+    private static final int FILAS = 500_000;
+    private static final int FETCH_SIZE = 2000;
+
+    /**
+     * Recorre 500k filas sintéticas con el mismo {@link RowCallbackHandler} que usa la exportación
+     * y las escribe en un stream que solo cuenta líneas. Comprueba el escape de {@code ;} y
+     * comillas, la fecha de pago vacía, el número de filas y que la consulta pide un cursor
+     * forward-only con el fetch size configurado.
+     */
+    @Test
+    void exportaTodasLasFilasConEscapeCsv() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        Connection conexion = mock(Connection.class);
+        PreparedStatement sentencia = mock(PreparedStatement.class);
+        when(conexion.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(sentencia);
+
+        FilaSintetica fila = new FilaSintetica();
+        ResultSet rs = fila.comoResultSet();
+        doAnswer(invocacion -> {
+            PreparedStatementCreator creador = invocacion.getArgument(0);
+            creador.createPreparedStatement(conexion);
+            RowCallbackHandler manejador = invocacion.getArgument(1);
+            for (fila.indice = 0; fila.indice < FILAS; fila.indice++) {
+                manejador.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        PagosService service = new PagosService(jdbcTemplate, mock(PagosResumenMensualService.class),
+                mock(PagosTotalesCache.class));
+        ReflectionTestUtils.setField(service, "exportFetchSize", FETCH_SIZE);
+
+        SalidaContada salida = new SalidaContada(4096);
+        service.exportarRadicacionesCsv("900123456", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 1), null, salida);
+
+        verify(conexion).prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+        verify(sentencia).setFetchSize(FETCH_SIZE);
+
+        // Encabezado + una línea por fila.
+        assertThat(salida.lineas).isEqualTo(FILAS + 1);
+        String[] inicio = salida.inicio().split("\n");
+        assertThat(inicio[0]).isEqualTo("\uFEFFnit;prefijo_factura;fecha_radicacion;valor_facturado;valor_pagado;fecha_pago");
+        assertThat(inicio[1]).isEqualTo("900123456;\"FE;0\";2025-01-15;1000.50;0;");
+        assertThat(inicio[2]).isEqualTo("900123456;\"FE\"\"1\";2025-01-15;1000.50;1000.50;2025-01-20");
+        assertThat(inicio[3]).isEqualTo("900123456;FE2;2025-01-15;1000.50;0;");
+        assertThat(inicio[4]).isEqualTo("900123456;;2025-01-15;1000.50;1000.50;2025-01-20");
+    }
+
+    /**
+     * Fila {@code indice} del resultado: prefijo con {@code ;} en la 0, con comillas en la 1 y nulo
+     * en los múltiplos de 3; solo las filas impares tienen pago.
+     */
+    private static class FilaSintetica {
+
+        private static final Date RADICACION = Date.valueOf("2025-01-15");
+        private static final Date PAGO = Date.valueOf("2025-01-20");
+        private static final BigDecimal VALOR = new BigDecimal("1000.50");
+
+        int indice;
+
+        ResultSet comoResultSet() {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, metodo, args) -> switch (metodo.getName() + ":" + (args == null ? "" : args[0])) {
+                        case "getString:nit" -> " 900123456 ";
+                        case "getString:prefijo_factura" -> prefijo();
+                        case "getDate:fecha_radicacion" -> RADICACION;
+                        case "getDate:feccha_pago" -> pagada() ? PAGO : null;
+                        case "getBigDecimal:valor_facturado" -> VALOR;
+                        case "getBigDecimal:valor_pagado" -> pagada() ? VALOR : null;
+                        default -> throw new UnsupportedOperationException(metodo.getName());
+                    });
+        }
+
+        private String prefijo() {
+            return switch (indice) {
+                case 0 -> "FE;0";
+                case 1 -> "FE\"1";
+                default -> indice % 3 == 0 ? null : "FE" + indice;
+            };
+        }
+
+        private boolean pagada() {
+            return indice % 2 == 1;
+        }
+    }
+
+    /**
+     * Cuenta líneas sin acumular el contenido; solo conserva los primeros bytes para
+     * revisar el encabezado y las primeras filas.
+     */
+    private static class SalidaContada extends OutputStream {
+
+        private final ByteArrayOutputStream primeros = new ByteArrayOutputStream();
+        private final int limite;
+        long lineas;
+
+        SalidaContada(int limite) {
+            this.limite = limite;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lineas++;
+            }
+            if (primeros.size() < limite) {
+                primeros.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        String inicio() {
+            return primeros.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.fomag.convocatoria.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PowerBIAccessTokenProviderTest {
+
+    private static final int SOLICITUDES_CONCURRENTES = 16;
+
+    private final AtomicInteger llamadasToken = new AtomicInteger();
+    private final Sinks.One<ClientResponse> primeraRespuesta = Sinks.one();
+    private final RelojManual reloj = new RelojManual(Instant.parse("2026-01-01T00:00:00Z"));
+
+    /**
+     * Las solicitudes que llegan mientras la primera llamada a Entra ID sigue en curso comparten esa
+     * llamada. Dentro de {@code refresh-before-seconds} se sigue entregando el token vigente y se
+     * pide uno nuevo en segundo plano, que reemplaza al anterior antes de que venza.
+     */
+    @Test
+    void unaSolaLlamadaParaConcurrentesYRenovacionAntesDeVencer() throws Exception {
+        PowerBIAccessTokenProvider provider = proveedor();
+
+        ExecutorService pool = Executors.newFixedThreadPool(SOLICITUDES_CONCURRENTES);
+        List<CompletableFuture<String>> tokens = new ArrayList<>();
+        try {
+            List<Future<CompletableFuture<String>>> suscritas = new ArrayList<>();
+            for (int i = 0; i < SOLICITUDES_CONCURRENTES; i++) {
+                suscritas.add(pool.submit(() -> provider.obtenerToken().toFuture()));
+            }
+            for (Future<CompletableFuture<String>> suscrita : suscritas) {
+                tokens.add(suscrita.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(tokens).noneMatch(CompletableFuture::isDone);
+
+        primeraRespuesta.tryEmitValue(token("t1", 3600));
+        for (CompletableFuture<String> token : tokens) {
+            assertThat(token.get(5, TimeUnit.SECONDS)).isEqualTo("t1");
+        }
+        assertThat(llamadasToken).hasValue(1);
+
+        // Fuera de la ventana de renovación (300 s antes de vencer) no se vuelve a llamar.
+        reloj.avanzar(Duration.ofSeconds(3600 - 301));
+        assertThat(provider.obtenerToken().block(Duration.ofSeconds(1))).isEqualTo("t1");
+        assertThat(llamadasToken).hasValue(1);
+
+        // Dentro de la ventana: se entrega el vigente y se renueva en segundo plano.
+        reloj.avanzar(Duration.ofSeconds(2));
+        assertThat(provider.obtenerToken().block(Duration.ofSeconds(1))).isEqualTo("t1");
+        assertThat(llamadasToken).hasValue(2);
+        assertThat(provider.obtenerToken().block(Duration.ofSeconds(1))).isEqualTo("t2");
+        assertThat(llamadasToken).hasValue(2);
+    }
+
+    private PowerBIAccessTokenProvider proveedor() {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    assertThat(request.url().toString()).isEqualTo("http://stub-entra/tenant/oauth2/v2.0/token");
+                    int llamada = llamadasToken.incrementAndGet();
+                    return llamada == 1 ? primeraRespuesta.asMono() : Mono.just(token("t" + llamada, 3600));
+                })
+                .build();
+        PowerBIResiliencia resiliencia = new PowerBIResiliencia(20, 0, 10, new SimpleMeterRegistry());
+        return new PowerBIAccessTokenProvider(webClient, resiliencia, reloj, "http://stub-entra",
+                "tenant", "cliente", "secreto", Duration.ofSeconds(300), Duration.ofSeconds(30));
+    }
+
+    private static ClientResponse token(String valor, long expiraEnSegundos) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"access_token\":\"" + valor + "\",\"expires_in\":" + expiraEnSegundos + "}")
+                .build();
+    }
+
+    private static class RelojManual extends Clock {
+
+        private volatile Instant ahora;
+
+        RelojManual(Instant inicio) {
+            this.ahora = inicio;
+        }
+
+        void avanzar(Duration duracion) {
+            ahora = ahora.plus(duracion);
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.fomag.convocatoria.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PowerBIServiceTest {
+
+    private static final Duration DEMORA_POWER_BI = Duration.ofSeconds(2);
+
+    private final AtomicInteger llamadasGenerateToken = new AtomicInteger();
+    private final AtomicReference<String> hiloRespuesta = new AtomicReference<>();
+
+    /**
+     * Power BI tarda {@link #DEMORA_POWER_BI} en responder GenerateToken. Obtener el embed config
+     * devuelve el control al hilo que llama (el del servlet) sin esperar esa respuesta; el resultado
+     * llega después en otro hilo, y la segunda solicitud del mismo prestador sale de la caché.
+     */
+    @Test
+    void embedConfigNoBloqueaElHiloQueLlama() throws Exception {
+        PowerBIService service = servicio(stubMicrosoft());
+
+        long inicio = System.nanoTime();
+        CompletableFuture<PowerBIService.EmbedConfig> resultado = service.getEmbedConfig(" 900123456 ").toFuture();
+        Duration transcurrido = Duration.ofNanos(System.nanoTime() - inicio);
+
+        assertThat(transcurrido).isLessThan(DEMORA_POWER_BI);
+        assertThat(resultado).isNotDone();
+
+        PowerBIService.EmbedConfig config = resultado.get(5, TimeUnit.SECONDS);
+        assertThat(config.embedToken()).isEqualTo("embed-900123456");
+        assertThat(config.reportId()).isEqualTo("reporte");
+        assertThat(hiloRespuesta.get()).isNotEqualTo(Thread.currentThread().getName());
+
+        PowerBIService.EmbedConfig cacheado = service.getEmbedConfig("900123456").toFuture().get(1, TimeUnit.SECONDS);
+        assertThat(cacheado.embedToken()).isEqualTo("embed-900123456");
+        assertThat(llamadasGenerateToken).hasValue(1);
+    }
+
+    private ExchangeFunction stubMicrosoft() {
+        return request -> {
+            String ruta = request.url().getPath();
+            if (ruta.endsWith("/oauth2/v2.0/token")) {
+                return Mono.just(json("{\"access_token\":\"aad\",\"expires_in\":3600}"));
+            }
+            llamadasGenerateToken.incrementAndGet();
+            String expira = OffsetDateTime.now(ZoneOffset.UTC).plusHours(1).toString();
+            return Mono.delay(DEMORA_POWER_BI)
+                    .map(tick -> {
+                        hiloRespuesta.set(Thread.currentThread().getName());
+                        return json("{\"token\":\"embed-900123456\",\"expiration\":\"" + expira + "\"}");
+                    });
+        };
+    }
+
+    private static ClientResponse json(String cuerpo) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(cuerpo)
+                .build();
+    }
+
+    private static PowerBIService servicio(ExchangeFunction exchange) {
+        WebClient webClient = WebClient.builder().exchangeFunction(exchange).build();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PowerBIResiliencia resiliencia = new PowerBIResiliencia(20, 0, 10, registry);
+        PowerBIAccessTokenProvider tokenProvider = new PowerBIAccessTokenProvider(webClient, resiliencia,
+                Clock.systemUTC(), "http://stub-entra", "tenant", "cliente", "secreto",
+                Duration.ofSeconds(300), Duration.ofSeconds(30));
+        PowerBIService service = new PowerBIService(webClient, tokenProvider,
+                new PowerBIEmbedTokenCache(100, 300, registry), resiliencia);
+        ReflectionTestUtils.setField(service, "apiUrl", "http://stub-powerbi");
+        ReflectionTestUtils.setField(service, "tenantId", "tenant");
+        ReflectionTestUtils.setField(service, "clientId", "cliente");
+        ReflectionTestUtils.setField(service, "clientSecret", "secreto");
+        ReflectionTestUtils.setField(service, "groupId", "grupo");
+        ReflectionTestUtils.setField(service, "reportId", "reporte");
+        ReflectionTestUtils.setField(service, "datasetId", "dataset");
+        ReflectionTestUtils.setField(service, "rlsRole", "PrestadorRLS");
+        return service;
+    }
+}
@@ -7,3 +7,7 @@ export interface Municipio {
   id: string;
   nombre: string;
 }
+
+export interface DepartamentoGeografia extends Departamento {
+  municipios: Municipio[];
+}
@@ -15,9 +15,11 @@ export interface PagoRadicacionPage {
   page: number;
   size: number;
   hasNext: boolean;
+  nextCursor?: string | null;
   totalRows: number;
   totalFacturado: number;
   totalPagado: number;
   totalPendiente: number;
+  totalesDesdeCache?: boolean;
   items: PagoRadicacionItem[];
 }
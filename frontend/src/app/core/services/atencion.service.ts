@@ -46,6 +46,7 @@ export interface AtencionSede {
   servicioExclusivo: boolean;
   servicioAgenda: boolean;
   servicioFranjas: boolean;
+  version?: number;
 }
 
 @Injectable({ providedIn: 'root' })
@@ -1,26 +1,40 @@
 import { Injectable } from '@angular/core';
-import { HttpClient, HttpParams } from '@angular/common/http';
-import { map } from 'rxjs';
+import { HttpClient } from '@angular/common/http';
+import { Observable, map, shareReplay } from 'rxjs';
 
 import { ApiResponse } from '../models/prestador.model';
-import { Departamento, Municipio } from '../models/catalogos.model';
+import { Departamento, DepartamentoGeografia, Municipio } from '../models/catalogos.model';
 
 @Injectable({ providedIn: 'root' })
 export class CatalogosService {
   private readonly apiBase = '/api/catalogos';
 
+  // Árbol completo departamento → municipios, pedido una sola vez por sesión.
+  private geografia$?: Observable<DepartamentoGeografia[]>;
+
   constructor(private readonly http: HttpClient) {}
 
-  obtenerDepartamentos() {
-    return this.http
-      .get<ApiResponse<Departamento[]>>(`${this.apiBase}/departamentos`)
-      .pipe(map((resp) => resp.data));
+  obtenerGeografia(): Observable<DepartamentoGeografia[]> {
+    if (!this.geografia$) {
+      this.geografia$ = this.http
+        .get<ApiResponse<DepartamentoGeografia[]>>(`${this.apiBase}/geografia`)
+        .pipe(
+          map((resp) => resp.data ?? []),
+          shareReplay({ bufferSize: 1, refCount: false })
+        );
+    }
+    return this.geografia$;
+  }
+
+  obtenerDepartamentos(): Observable<Departamento[]> {
+    return this.obtenerGeografia().pipe(
+      map((deptos) => deptos.map(({ id, nombre }) => ({ id, nombre })))
+    );
   }
 
-  obtenerMunicipios(departamentoId: string) {
-    const params = new HttpParams().set('departamentoId', departamentoId);
-    return this.http
-      .get<ApiResponse<Municipio[]>>(`${this.apiBase}/municipios`, { params })
-      .pipe(map((resp) => resp.data));
+  obtenerMunicipios(departamentoId: string): Observable<Municipio[]> {
+    return this.obtenerGeografia().pipe(
+      map((deptos) => deptos.find((d) => d.id === departamentoId)?.municipios ?? [])
+    );
   }
 }
@@ -25,7 +25,14 @@ export class PagosService {
     );
   }
 
-  consultarRadicaciones(nit: string, filtros: { periodo?: string; ini?: string; fin?: string; prefijo?: string; page?: number }) {
+  consultarEstadoRango(nit: string, desde: string, hasta: string) {
+    const params = new HttpParams().set('nit', nit).set('desde', desde).set('hasta', hasta);
+    return this.http.get<ApiResponse<PagoEstado[]>>(`${this.apiBase}/pagos/estado`, { params }).pipe(
+      map((resp) => resp.data ?? [])
+    );
+  }
+
+  consultarRadicaciones(nit: string, filtros: { periodo?: string; ini?: string; fin?: string; prefijo?: string; page?: number; size?: number; cursor?: string | null }) {
     let params = new HttpParams().set('nit', nit);
     if (filtros.periodo) {
       params = params.set('periodo', filtros.periodo);
@@ -42,6 +49,12 @@ export class PagosService {
     if (filtros.page !== undefined) {
       params = params.set('page', filtros.page);
     }
+    if (filtros.size !== undefined) {
+      params = params.set('size', filtros.size);
+    }
+    if (filtros.cursor) {
+      params = params.set('cursor', filtros.cursor);
+    }
     return this.http.get<ApiResponse<PagoRadicacionPage>>(`${this.apiBase}/pagos/radicaciones`, { params }).pipe(
       map((resp) => resp.data),
       catchError((err) => {
@@ -52,4 +65,21 @@ export class PagosService {
       })
     );
   }
+
+  exportarRadicaciones(nit: string, filtros: { periodo?: string; ini?: string; fin?: string; prefijo?: string }) {
+    let params = new HttpParams().set('nit', nit);
+    if (filtros.periodo) {
+      params = params.set('periodo', filtros.periodo);
+    }
+    if (filtros.ini) {
+      params = params.set('ini', filtros.ini);
+    }
+    if (filtros.fin) {
+      params = params.set('fin', filtros.fin);
+    }
+    if (filtros.prefijo) {
+      params = params.set('prefijo', filtros.prefijo);
+    }
+    return this.http.get(`${this.apiBase}/pagos/radicaciones/export`, { params, responseType: 'blob' });
+  }
 }
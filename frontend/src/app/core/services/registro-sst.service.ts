@@ -20,12 +20,13 @@ export class RegistroSstService {
       .pipe(map((resp) => resp.data || []));
   }
 
-  actualizarSede(payload: { nit: string; direccion: string; servicios: string[]; departamentoId?: string; municipioId?: string; codigoPostal?: string }) {
+  actualizarSede(payload: { nit: string; sedeId?: number; direccion: string; servicios: string[]; departamentoId?: string; municipioId?: string; codigoPostal?: string }) {
     return this.http.put<void>(`${this.apiBase}/sede`, payload);
   }
 }
 
 export interface SedeSst {
+  id?: number;
   direccion: string;
   departamentoId: string;
   municipioId: string;
@@ -21,6 +21,7 @@ export class EditarAtencionComponent {
   nit = '';
   nombre = '';
   cod = '';
+  version: number | null = null;
   loading = signal(false);
   success = signal<string | null>(null);
   error = signal<string | null>(null);
@@ -79,6 +80,7 @@ export class EditarAtencionComponent {
       next: (data) => {
         if (data) {
           this.form.patchValue(data as any);
+          this.version = data.version ?? null;
         }
         this.loading.set(false);
       },
@@ -94,7 +96,8 @@ export class EditarAtencionComponent {
     const payload: Partial<AtencionSede> & { nit: string; codHabilitacion: string } = {
       nit: this.nit,
       codHabilitacion: this.cod,
-      ...(this.form.value as any)
+      ...(this.form.value as any),
+      version: this.version ?? undefined
     };
     this.loading.set(true);
     this.error.set(null);
@@ -107,8 +110,12 @@ export class EditarAtencionComponent {
           this.router.navigate(['/actualizar-atencion'], { queryParams: { nit: this.nit, nombre: this.nombre } });
         }, 800);
       },
-      error: () => {
+      error: (err) => {
         this.loading.set(false);
+        if (err?.status === 409) {
+          this.error.set('La sede fue modificada por otra sesión. Recargue los datos e intente de nuevo.');
+          return;
+        }
         this.error.set('No se pudo guardar.');
       }
     });
@@ -140,6 +140,7 @@ export class MenuSstComponent {
 
     const payload = {
       nit: this.nit,
+      sedeId: sede.id,
       direccion: sede.direccion,
       departamentoId: sede.departamentoId || undefined,
       municipioId: sede.municipioId || undefined,